@@ -0,0 +1,327 @@
+package agency.highlysuspect.libs.nacl.v1.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates a ConfigAdapter for each class marked with @GenerateAdapter.
+ * 
+ * The adapter for pkg.Outer$MyConfig is the top-level class pkg.Outer$MyConfig_NaclAdapter, which is what ConfigReader looks for.
+ * It picks the same fields ConfigReader would by reflection (not static, final, or transient, and not @Skip), in declaration order,
+ * and gets at them directly, so they can't be private.
+ * 
+ * nacl's classes are referred to by name, not by class literal, so this doesn't need nacl (or Minecraft) on its classpath.
+ */
+@SupportedAnnotationTypes(AdapterProcessor.GENERATE_ADAPTER)
+public class AdapterProcessor extends AbstractProcessor {
+	static final String GENERATE_ADAPTER = "agency.highlysuspect.libs.nacl.v1.annotation.GenerateAdapter";
+	static final String SKIP = "agency.highlysuspect.libs.nacl.v1.annotation.Skip";
+	static final String SUFFIX = "_NaclAdapter";
+	
+	static final String ADAPTER = "agency.highlysuspect.libs.nacl.v1.ConfigAdapter";
+	static final String ACCESSOR = "agency.highlysuspect.libs.nacl.v1.FieldAccessor";
+	static final String ENTRY = "agency.highlysuspect.libs.nacl.v1.ConfigSchema.Entry";
+	static final String CODON = "agency.highlysuspect.libs.nacl.v1.types.Codon";
+	static final String PRIMITIVE_CODONS = "agency.highlysuspect.libs.nacl.v1.types.PrimitiveCodons";
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for(TypeElement annotation : annotations) {
+			for(Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if(element instanceof TypeElement type && check(type)) {
+					try {
+						generate(type);
+					} catch (IOException e) {
+						processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write the config adapter: " + e, type);
+					}
+				} else if(!(element instanceof TypeElement)) {
+					error(element, "@GenerateAdapter only goes on config classes");
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Complain about anything that'd stop the generated adapter from compiling.
+	 * @return Whether it's ok to generate one.
+	 */
+	private boolean check(TypeElement type) {
+		boolean ok = true;
+		
+		if(type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+			error(type, "@GenerateAdapter only goes on concrete classes");
+			return false;
+		}
+		if(!type.getTypeParameters().isEmpty()) {
+			error(type, "@GenerateAdapter config classes can't be generic");
+			ok = false;
+		}
+		
+		for(Element e = type; e instanceof TypeElement t; e = t.getEnclosingElement()) {
+			if(t.getModifiers().contains(Modifier.PRIVATE)) {
+				error(type, "@GenerateAdapter config classes can't be private, or be nested in a private class");
+				ok = false;
+			}
+			if(t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)) {
+				error(type, "@GenerateAdapter config classes nested in another class have to be static");
+				ok = false;
+			}
+			if(t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) {
+				error(type, "@GenerateAdapter config classes can't be local classes");
+				return false;
+			}
+		}
+		
+		List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+		if(constructors.stream().noneMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE))) {
+			error(type, "@GenerateAdapter config classes need a zero-argument constructor that isn't private");
+			ok = false;
+		}
+		
+		for(VariableElement field : configFields(type)) {
+			if(field.getModifiers().contains(Modifier.PRIVATE)) {
+				error(field, "Config fields in @GenerateAdapter config classes can't be private (make it package-private, or mark it @Skip)");
+				ok = false;
+			}
+		}
+		
+		return ok;
+	}
+	
+	/**
+	 * The same fields ConfigReader#skipField doesn't skip, in declaration order.
+	 */
+	private List<VariableElement> configFields(TypeElement type) {
+		List<VariableElement> fields = new ArrayList<>();
+		for(VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			Set<Modifier> mods = field.getModifiers();
+			if(mods.contains(Modifier.STATIC) || mods.contains(Modifier.FINAL) || mods.contains(Modifier.TRANSIENT)) continue;
+			if(hasAnnotation(field, SKIP)) continue;
+			fields.add(field);
+		}
+		return fields;
+	}
+	
+	private static boolean hasAnnotation(Element element, String name) {
+		for(AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) return true;
+		}
+		return false;
+	}
+	
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+	
+	private void generate(TypeElement type) throws IOException {
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		String adapterName = binaryName.substring(binaryName.lastIndexOf('.') + 1) + SUFFIX;
+		String configName = type.getQualifiedName().toString();
+		List<VariableElement> fields = configFields(type);
+		
+		StringBuilder src = new StringBuilder();
+		if(!pkg.isEmpty()) src.append("package ").append(pkg).append(";\n\n");
+		
+		src.append("/**\n");
+		src.append(" * Generated by nacl's annotation processor from ").append(configName).append(". Don't edit it, edit that.\n");
+		src.append(" */\n");
+		src.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+		src.append("public final class ").append(adapterName).append(" implements ").append(ADAPTER).append("<").append(configName).append("> {\n");
+		
+		src.append("\tprivate static final java.util.List<String> KEYS = java.util.List.of(");
+		for(int i = 0; i < fields.size(); i++) {
+			if(i != 0) src.append(", ");
+			src.append('"').append(fields.get(i).getSimpleName()).append('"');
+		}
+		src.append(");\n\t\n");
+		
+		src.append("\t@Override\n");
+		src.append("\tpublic Class<").append(configName).append("> configClass() {\n");
+		src.append("\t\treturn ").append(configName).append(".class;\n");
+		src.append("\t}\n\t\n");
+		
+		src.append("\t@Override\n");
+		src.append("\tpublic java.util.List<String> keys() {\n");
+		src.append("\t\treturn KEYS;\n");
+		src.append("\t}\n\t\n");
+		
+		src.append("\t@Override\n");
+		src.append("\tpublic ").append(configName).append(" newInstance() {\n");
+		src.append("\t\treturn new ").append(configName).append("();\n");
+		src.append("\t}\n\t\n");
+		
+		//Keys grouped by length, so the length is a switch and then there's only a couple of candidates to compare against
+		Map<Integer, List<Integer>> slotsByLength = new TreeMap<>();
+		for(int i = 0; i < fields.size(); i++) {
+			slotsByLength.computeIfAbsent(fields.get(i).getSimpleName().length(), len -> new ArrayList<>()).add(i);
+		}
+		src.append("\t@Override\n");
+		src.append("\tpublic int slot(char[] buf, int start, int end) {\n");
+		src.append("\t\tswitch(end - start) {\n");
+		slotsByLength.forEach((length, slots) -> {
+			src.append("\t\t\tcase ").append(length).append(" -> {\n");
+			for(int slot : slots) {
+				src.append("\t\t\t\tif(").append(ADAPTER).append(".keyEquals(buf, start, \"").append(fields.get(slot).getSimpleName()).append("\")) return ").append(slot).append(";\n");
+			}
+			src.append("\t\t\t}\n");
+		});
+		src.append("\t\t}\n");
+		src.append("\t\treturn -1;\n");
+		src.append("\t}\n\t\n");
+		
+		src.append("\t@Override\n");
+		src.append("\tpublic ").append(ACCESSOR).append(" accessor(int slot) {\n");
+		src.append("\t\tswitch(slot) {\n");
+		for(int i = 0; i < fields.size(); i++) {
+			src.append("\t\t\tcase ").append(i).append(": return new Accessor").append(i).append("();\n");
+		}
+		src.append("\t\t}\n");
+		src.append("\t\tthrow new IndexOutOfBoundsException(slot);\n");
+		src.append("\t}\n\t\n");
+		
+		src.append("\t@Override\n");
+		src.append("\tpublic void parseInto(Object configInst, ").append(ENTRY).append(" entry, CharSequence text, int start, int end) {\n");
+		src.append("\t\t").append(configName).append(" config = (").append(configName).append(") configInst;\n");
+		src.append("\t\tswitch(entry.slot) {\n");
+		for(int i = 0; i < fields.size(); i++) {
+			VariableElement field = fields.get(i);
+			String name = field.getSimpleName().toString();
+			Primitive prim = Primitive.of(field.asType());
+			src.append("\t\t\tcase ").append(i).append(" -> config.").append(name).append(" = ");
+			if(prim != null) {
+				src.append("entry.codon instanceof ").append(PRIMITIVE_CODONS).append('.').append(prim.codon).append(" codon ? codon.").append(prim.parse).append("(entry.field, text, start, end) : ");
+				src.append("(").append(prim.wrapper).append(") entry.codon.parse(entry.field, text, start, end);\n");
+			} else {
+				src.append("(").append(typeName(field.asType())).append(") entry.codon.parse(entry.field, text, start, end);\n");
+			}
+		}
+		src.append("\t\t\tdefault -> throw new IndexOutOfBoundsException(entry.slot);\n");
+		src.append("\t\t}\n");
+		src.append("\t}\n\t\n");
+		
+		src.append("\t@Override\n");
+		src.append("\tpublic void writeFrom(Object configInst, ").append(ENTRY).append(" entry, StringBuilder out) {\n");
+		src.append("\t\t").append(configName).append(" config = (").append(configName).append(") configInst;\n");
+		src.append("\t\tswitch(entry.slot) {\n");
+		for(int i = 0; i < fields.size(); i++) {
+			VariableElement field = fields.get(i);
+			String name = field.getSimpleName().toString();
+			Primitive prim = Primitive.of(field.asType());
+			src.append("\t\t\tcase ").append(i).append(" -> ");
+			if(prim != null) {
+				src.append("{\n");
+				src.append("\t\t\t\tif(entry.codon instanceof ").append(PRIMITIVE_CODONS).append('.').append(prim.codon).append(") out.append(config.").append(name).append(");\n");
+				src.append("\t\t\t\telse ((").append(CODON).append(") entry.codon).write(entry.field, config.").append(name).append(", out);\n");
+				src.append("\t\t\t}\n");
+			} else {
+				src.append("((").append(CODON).append(") entry.codon).write(entry.field, config.").append(name).append(", out);\n");
+			}
+		}
+		src.append("\t\t\tdefault -> throw new IndexOutOfBoundsException(entry.slot);\n");
+		src.append("\t\t}\n");
+		src.append("\t}\n");
+		
+		for(int i = 0; i < fields.size(); i++) {
+			VariableElement field = fields.get(i);
+			String name = field.getSimpleName().toString();
+			Primitive prim = Primitive.of(field.asType());
+			String boxed = prim != null ? prim.wrapper : typeName(field.asType());
+			
+			src.append("\t\n");
+			src.append("\tprivate static final class Accessor").append(i).append(" implements ").append(ACCESSOR).append(" {\n");
+			src.append("\t\t@Override\n");
+			src.append("\t\tpublic Object get(Object configInst) {\n");
+			src.append("\t\t\treturn ((").append(configName).append(") configInst).").append(name).append(";\n");
+			src.append("\t\t}\n\t\t\n");
+			src.append("\t\t@Override\n");
+			src.append("\t\tpublic void set(Object configInst, Object value) {\n");
+			src.append("\t\t\t((").append(configName).append(") configInst).").append(name).append(" = (").append(boxed).append(") value;\n");
+			src.append("\t\t}\n");
+			if(prim != null) {
+				src.append("\t\t\n");
+				src.append("\t\t@Override\n");
+				src.append("\t\tpublic ").append(prim.keyword).append(" get").append(prim.accessor).append("(Object configInst) {\n");
+				src.append("\t\t\treturn ((").append(configName).append(") configInst).").append(name).append(";\n");
+				src.append("\t\t}\n\t\t\n");
+				src.append("\t\t@Override\n");
+				src.append("\t\tpublic void set").append(prim.accessor).append("(Object configInst, ").append(prim.keyword).append(" value) {\n");
+				src.append("\t\t\t((").append(configName).append(") configInst).").append(name).append(" = value;\n");
+				src.append("\t\t}\n");
+			}
+			src.append("\t}\n");
+		}
+		
+		src.append("}\n");
+		
+		String qualifiedAdapterName = pkg.isEmpty() ? adapterName : pkg + "." + adapterName;
+		try(Writer writer = processingEnv.getFiler().createSourceFile(qualifiedAdapterName, type).openWriter()) {
+			writer.write(src.toString());
+		}
+	}
+	
+	/**
+	 * The type, with its type arguments (and any type annotations) erased, as it'd be written in source.
+	 * Casting to the raw type is fine, the generated class suppresses the warnings.
+	 */
+	private static String typeName(TypeMirror type) {
+		if(type instanceof ArrayType array) return typeName(array.getComponentType()) + "[]";
+		if(type instanceof DeclaredType declared) return ((TypeElement) declared.asElement()).getQualifiedName().toString();
+		if(type.getKind().isPrimitive()) return type.getKind().name().toLowerCase(Locale.ROOT);
+		throw new IllegalArgumentException("Can't write the type " + type);
+	}
+	
+	/**
+	 * Primitive field types, and how the generated code gets at them without boxing.
+	 * char doesn't have a codon in PrimitiveCodons or methods in FieldAccessor, so it goes through the boxed path like any other object.
+	 */
+	private enum Primitive {
+		BOOLEAN(TypeKind.BOOLEAN, "boolean", "java.lang.Boolean", "BooleanCodon", "parseBoolean", "Boolean"),
+		BYTE(TypeKind.BYTE, "byte", "java.lang.Byte", "ByteCodon", "parseByte", "Byte"),
+		SHORT(TypeKind.SHORT, "short", "java.lang.Short", "ShortCodon", "parseShort", "Short"),
+		INT(TypeKind.INT, "int", "java.lang.Integer", "IntCodon", "parseInt", "Int"),
+		LONG(TypeKind.LONG, "long", "java.lang.Long", "LongCodon", "parseLong", "Long"),
+		FLOAT(TypeKind.FLOAT, "float", "java.lang.Float", "FloatCodon", "parseFloat", "Float"),
+		DOUBLE(TypeKind.DOUBLE, "double", "java.lang.Double", "DoubleCodon", "parseDouble", "Double"),
+		;
+		
+		Primitive(TypeKind kind, String keyword, String wrapper, String codon, String parse, String accessor) {
+			this.kind = kind;
+			this.keyword = keyword;
+			this.wrapper = wrapper;
+			this.codon = codon;
+			this.parse = parse;
+			this.accessor = accessor;
+		}
+		
+		final TypeKind kind;
+		final String keyword;
+		final String wrapper;
+		final String codon;
+		final String parse;
+		final String accessor;
+		
+		static Primitive of(TypeMirror type) {
+			for(Primitive prim : values()) if(prim.kind == type.getKind()) return prim;
+			return null;
+		}
+	}
+}
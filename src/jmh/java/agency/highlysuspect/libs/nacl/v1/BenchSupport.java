@@ -0,0 +1,131 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import agency.highlysuspect.libs.nacl.v1.types.CodonTypeLookup;
+import com.mojang.serialization.Lifecycle;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.util.registry.SimpleRegistry;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.function.IntFunction;
+
+/**
+ * Stuff shared between the benchmarks. None of it needs the game to be running.
+ */
+final class BenchSupport {
+	private BenchSupport() {}
+	
+	/**
+	 * A stand-in registry, so registry entry codons can be benchmarked without bootstrapping Minecraft's registries.
+	 */
+	static final Registry<Widget> WIDGETS = new SimpleRegistry<>(RegistryKey.ofRegistry(new Identifier("nacl_bench", "widgets")), Lifecycle.stable());
+	static final int WIDGET_COUNT = 1024;
+	
+	static {
+		for(int i = 0; i < WIDGET_COUNT; i++) {
+			Registry.register(WIDGETS, widgetId(i), new Widget(i));
+		}
+		CodonTypeLookup.registerRegistryType(Widget.class, WIDGETS);
+	}
+	
+	/**
+	 * Doesn't do anything itself, but makes sure WIDGETS is set up and registered with CodonTypeLookup.
+	 */
+	static void init() {}
+	
+	public static final class Widget {
+		Widget(int n) {
+			this.n = n;
+		}
+		
+		final int n;
+	}
+	
+	static Identifier widgetId(int i) {
+		return new Identifier("nacl_bench", "widget_" + (i % WIDGET_COUNT));
+	}
+	
+	/**
+	 * A class file can't have more than 65535 fields (or constant pool entries, and each field name takes one),
+	 * so config classes bigger than this get split up. See wideConfigClasses.
+	 */
+	static final int MAX_WIDE_KEYS = 50000;
+	
+	/**
+	 * Makes enough wideConfigClasses to have this many keys between them, none of them bigger than MAX_WIDE_KEYS.
+	 * They're all about the same size.
+	 */
+	static Class<?>[] wideConfigClasses(int keys) {
+		int parts = Math.max(1, (keys + MAX_WIDE_KEYS - 1) / MAX_WIDE_KEYS);
+		Class<?>[] classes = new Class<?>[parts];
+		for(int i = 0; i < parts; i++) classes[i] = wideConfigClass(partSize(keys, parts, i), "Wide" + keys + "_" + i);
+		return classes;
+	}
+	
+	/**
+	 * How many keys part i of a config with this many keys split into this many parts gets.
+	 */
+	static int partSize(int keys, int parts, int i) {
+		return keys / parts + (i < keys % parts ? 1 : 0);
+	}
+	
+	/**
+	 * Makes a config class with this many public int fields, named key0, key1, and so on.
+	 * There's no way to write a class like this by hand, and it can't be much bigger than 65535 keys (see MAX_WIDE_KEYS).
+	 */
+	static Class<?> wideConfigClass(int keys, String simpleName) {
+		String name = "agency/highlysuspect/libs/nacl/v1/generated/" + simpleName;
+		
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+		for(int i = 0; i < keys; i++) {
+			cw.visitField(Opcodes.ACC_PUBLIC, "key" + i, "I", null, null).visitEnd();
+		}
+		
+		//Just a zero-argument constructor. Setting every field to something in here would blow past the 64kb method size limit
+		MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		init.visitCode();
+		init.visitVarInsn(Opcodes.ALOAD, 0);
+		init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		init.visitInsn(Opcodes.RETURN);
+		init.visitMaxs(0, 0);
+		init.visitEnd();
+		cw.visitEnd();
+		
+		return new GeneratedClassLoader().define(cw.toByteArray());
+	}
+	
+	/**
+	 * A config file for a wideConfigClass, with every key set to a different number.
+	 */
+	static String wideConfigText(int keys) {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < keys; i++) builder.append("key").append(i).append(": ").append(i).append('\n');
+		return builder.toString();
+	}
+	
+	/**
+	 * A comma-separated list, the way the collection codons write them.
+	 */
+	static String list(int elements, IntFunction<String> element) {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < elements; i++) {
+			if(i != 0) builder.append(", ");
+			builder.append(element.apply(i));
+		}
+		return builder.toString();
+	}
+	
+	private static class GeneratedClassLoader extends ClassLoader {
+		GeneratedClassLoader() {
+			super(BenchSupport.class.getClassLoader());
+		}
+		
+		Class<?> define(byte[] bytes) {
+			return defineClass(null, bytes, 0, bytes.length);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import agency.highlysuspect.libs.nacl.v1.annotation.AtLeast;
+import agency.highlysuspect.libs.nacl.v1.annotation.AtMost;
+import agency.highlysuspect.libs.nacl.v1.types.Codon;
+import agency.highlysuspect.libs.nacl.v1.types.CodonTypeLookup;
+import agency.highlysuspect.libs.nacl.v1.types.RegistryEntryCodon;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and writing single values with each of the built-in codons.
+ * The collection codons are run with lists from one element up to tens of thousands.
+ * The *Span and *Into benchmarks use the span versions of parse and write, which is what ConfigReader calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CodonBenchmark {
+	@Param({"1", "100", "50000"})
+	public int elements;
+	
+	@SuppressWarnings("unused")
+	static class Fields {
+		@AtLeast(intValue = 0) @AtMost(intValue = 1000000) int boundedInt;
+		@AtLeast(doubleValue = 0) @AtMost(doubleValue = 1) double boundedDouble;
+		boolean bool;
+		String string;
+		List<Integer> intList;
+		Set<String> stringSet;
+		Optional<Integer> optional;
+		String[] stringArray;
+		@AtLeast(intValue = 0) int[] intArray;
+		BenchSupport.Widget registryEntry;
+		List<BenchSupport.Widget> registryEntries;
+	}
+	
+	/**
+	 * One field's codon, with a value to parse and a value to write.
+	 */
+	static class Case {
+		Case(CodonTypeLookup lookup, String fieldName, String text) {
+			try {
+				this.field = Fields.class.getDeclaredField(fieldName);
+			} catch (NoSuchFieldException e) {
+				throw new IllegalArgumentException(e);
+			}
+			this.codon = lookup.find(field);
+			this.text = text;
+			this.value = codon.parse(field, text);
+			
+			//The way ConfigReader hands values to codons: a span in the middle of the whole file
+			this.line = CharBuffer.wrap(("key: " + text + "\n").toCharArray());
+		}
+		
+		final Field field;
+		final Codon<?> codon;
+		final String text;
+		final Object value;
+		final CharSequence line;
+		final StringBuilder out = new StringBuilder();
+		
+		Object parse() {
+			return codon.parse(field, text);
+		}
+		
+		String write() {
+			return codon.writeErased(field, value);
+		}
+		
+		Object parseSpan() {
+			return codon.parse(field, line, 5, line.length() - 1);
+		}
+		
+		@SuppressWarnings("unchecked")
+		StringBuilder writeInto() {
+			out.setLength(0);
+			((Codon<Object>) codon).write(field, value, out);
+			return out;
+		}
+	}
+	
+	Case boundedInt, boundedDouble, bool, string;
+	Case intList, stringSet, optional, stringArray, intArray;
+	Case registryEntry, registryEntries;
+	
+	@Setup
+	public void setup() {
+		BenchSupport.init();
+		CodonTypeLookup lookup = new CodonTypeLookup();
+		
+		boundedInt = new Case(lookup, "boundedInt", "123456");
+		boundedDouble = new Case(lookup, "boundedDouble", "0.625");
+		bool = new Case(lookup, "bool", "true");
+		string = new Case(lookup, "string", "Hello, world");
+		
+		intList = new Case(lookup, "intList", BenchSupport.list(elements, Integer::toString));
+		stringSet = new Case(lookup, "stringSet", BenchSupport.list(elements, i -> "string" + i));
+		optional = new Case(lookup, "optional", "12345");
+		stringArray = new Case(lookup, "stringArray", BenchSupport.list(elements, i -> "string" + i));
+		intArray = new Case(lookup, "intArray", BenchSupport.list(elements, Integer::toString));
+		
+		registryEntry = new Case(lookup, "registryEntry", BenchSupport.widgetId(7).toString());
+		registryEntries = new Case(lookup, "registryEntries", BenchSupport.list(elements, i -> BenchSupport.widgetId(i).toString()));
+	}
+	
+	@Benchmark
+	public Object parseBoundedInt() {
+		return boundedInt.parse();
+	}
+	
+	@Benchmark
+	public String writeBoundedInt() {
+		return boundedInt.write();
+	}
+	
+	@Benchmark
+	public Object parseBoundedIntSpan() {
+		return boundedInt.parseSpan();
+	}
+	
+	@Benchmark
+	public Object parseBoundedDouble() {
+		return boundedDouble.parse();
+	}
+	
+	@Benchmark
+	public String writeBoundedDouble() {
+		return boundedDouble.write();
+	}
+	
+	@Benchmark
+	public Object parseBoolean() {
+		return bool.parse();
+	}
+	
+	@Benchmark
+	public Object parseString() {
+		return string.parse();
+	}
+	
+	@Benchmark
+	public Object parseListOf() {
+		return intList.parse();
+	}
+	
+	@Benchmark
+	public String writeListOf() {
+		return intList.write();
+	}
+	
+	@Benchmark
+	public Object parseListOfSpan() {
+		return intList.parseSpan();
+	}
+	
+	@Benchmark
+	public StringBuilder writeListOfInto() {
+		return intList.writeInto();
+	}
+	
+	@Benchmark
+	public Object parseSetOf() {
+		return stringSet.parse();
+	}
+	
+	@Benchmark
+	public String writeSetOf() {
+		return stringSet.write();
+	}
+	
+	@Benchmark
+	public Object parseOptionalOf() {
+		return optional.parse();
+	}
+	
+	@Benchmark
+	public Object parseArrayOf() {
+		return stringArray.parse();
+	}
+	
+	@Benchmark
+	public String writeArrayOf() {
+		return stringArray.write();
+	}
+	
+	@Benchmark
+	public Object parsePrimitiveArray() {
+		return intArray.parse();
+	}
+	
+	@Benchmark
+	public String writePrimitiveArray() {
+		return intArray.write();
+	}
+	
+	@Benchmark
+	public Object parsePrimitiveArraySpan() {
+		return intArray.parseSpan();
+	}
+	
+	@Benchmark
+	public StringBuilder writePrimitiveArrayInto() {
+		return intArray.writeInto();
+	}
+	
+	@Benchmark
+	public Object parseRegistryEntry() {
+		return registryEntry.parse();
+	}
+	
+	@Benchmark
+	public String writeRegistryEntry() {
+		return registryEntry.write();
+	}
+	
+	@Benchmark
+	public Object parseRegistryEntries() {
+		return registryEntries.parse();
+	}
+	
+	@Benchmark
+	public String writeRegistryEntries() {
+		return registryEntries.write();
+	}
+	
+	/**
+	 * Like ConfigReader does it, with lookups cached for the duration of the pass.
+	 */
+	@Benchmark
+	public Object parseRegistryEntriesInPass() {
+		try(RegistryEntryCodon.Pass pass = RegistryEntryCodon.Pass.begin()) {
+			return registryEntries.parse();
+		}
+	}
+}
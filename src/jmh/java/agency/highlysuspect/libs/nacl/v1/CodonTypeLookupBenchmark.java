@@ -0,0 +1,80 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import agency.highlysuspect.libs.nacl.v1.types.Codon;
+import agency.highlysuspect.libs.nacl.v1.types.CodonTypeLookup;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.util.Identifier;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Working out which codon goes with a type, both when it's been looked up before and when it hasn't.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CodonTypeLookupBenchmark {
+	@SuppressWarnings("unused")
+	static class Types {
+		int primitive;
+		Integer boxed;
+		String string;
+		Identifier identifier;
+		List<String> list;
+		Set<Integer> set;
+		Optional<Double> optional;
+		Identifier[] array;
+		List<Optional<Set<String>>> nested;
+		BenchSupport.Widget registryEntry;
+		List<BenchSupport.Widget> registryEntries;
+		int[] primitiveArray;
+		IntList fastutil;
+	}
+	
+	CodonTypeLookup lookup;
+	Type[] types;
+	
+	@Setup
+	public void setup() {
+		lookup = new CodonTypeLookup();
+		
+		Field[] fields = Types.class.getDeclaredFields();
+		types = new Type[fields.length];
+		for(int i = 0; i < fields.length; i++) types[i] = fields[i].getGenericType();
+		
+		BenchSupport.init();
+	}
+	
+	@Benchmark
+	public void findTypeCached(Blackhole bh) {
+		for(Type type : types) bh.consume(lookup.findType(type));
+	}
+	
+	/**
+	 * Registering a classy codon throws away the lookup cache, so every type gets worked out from scratch.
+	 * (A named codon wouldn't, the lookup would keep borrowing BUILTIN's memoized codons.)
+	 */
+	@Benchmark
+	public void findTypeCold(Blackhole bh) {
+		lookup.registerClassyCodon(Types.class, Codon.STRING);
+		for(Type type : types) bh.consume(lookup.findType(type));
+	}
+	
+	/**
+	 * What every new ConfigReader pays for its lookup.
+	 */
+	@Benchmark
+	public CodonTypeLookup construct() {
+		return new CodonTypeLookup();
+	}
+}
@@ -0,0 +1,115 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reading and writing whole config files, from small to very big.
+ * 
+ * One config class can't have 100k fields, so past BenchSupport.MAX_WIDE_KEYS the keys are spread over several
+ * config classes, each with its own file, and every benchmark does its thing to all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConfigReaderBenchmark {
+	@Param({"10", "1000", "10000", "100000"})
+	public int keys;
+	
+	ConfigReader reader;
+	ConfigReader snapshotReader;
+	Class<Object>[] configClasses;
+	Object[] configInsts;
+	Object[] otherConfigInsts;
+	boolean flip;
+	
+	Path dir;
+	Path[] configPaths;
+	Path[] scratchPaths;
+	
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws IOException {
+		configClasses = (Class<Object>[]) BenchSupport.wideConfigClasses(keys);
+		int parts = configClasses.length;
+		dir = Files.createTempDirectory("nacl-bench");
+		
+		reader = new ConfigReader();
+		snapshotReader = new ConfigReader().setSnapshotDir(dir.resolve("snapshots"));
+		
+		configInsts = new Object[parts];
+		otherConfigInsts = new Object[parts];
+		configPaths = new Path[parts];
+		scratchPaths = new Path[parts];
+		for(int i = 0; i < parts; i++) {
+			//Write the file out once the way nacl would, so it has all the comments a real config file would
+			configPaths[i] = dir.resolve("wide" + i + ".cfg");
+			Files.writeString(configPaths[i], BenchSupport.wideConfigText(BenchSupport.partSize(keys, parts, i)));
+			configInsts[i] = reader.read(configClasses[i], configPaths[i]);
+			snapshotReader.read(configClasses[i], configPaths[i]);
+			
+			otherConfigInsts[i] = reader.read(configClasses[i], configPaths[i]);
+			reader.schema(configClasses[i]).entries.get(0).set(otherConfigInsts[i], -1);
+			scratchPaths[i] = dir.resolve("scratch" + i + ".cfg");
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		try(Stream<Path> files = Files.walk(dir)) {
+			for(Path path : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+		}
+	}
+	
+	@Benchmark
+	public void parse(Blackhole bh) throws IOException {
+		for(int i = 0; i < configClasses.length; i++) bh.consume(reader.parse(configClasses[i], configPaths[i]));
+	}
+	
+	/**
+	 * The whole thing: parse, callbacks, and save (which doesn't write anything, since the file's already up to date).
+	 */
+	@Benchmark
+	public void read(Blackhole bh) throws IOException {
+		for(int i = 0; i < configClasses.length; i++) bh.consume(reader.read(configClasses[i], configPaths[i]));
+	}
+	
+	@Benchmark
+	public void readFromSnapshot(Blackhole bh) throws IOException {
+		for(int i = 0; i < configClasses.length; i++) bh.consume(snapshotReader.read(configClasses[i], configPaths[i]));
+	}
+	
+	@Benchmark
+	public void stringify(Blackhole bh) {
+		for(int i = 0; i < configClasses.length; i++) bh.consume(reader.stringify(configClasses[i], configInsts[i]));
+	}
+	
+	@Benchmark
+	public void render(Blackhole bh) {
+		for(int i = 0; i < configClasses.length; i++) bh.consume(reader.renderPlan(configClasses[i]).renderBytes(configInsts[i]));
+	}
+	
+	@Benchmark
+	public void saveUnchanged() throws IOException {
+		for(int i = 0; i < configClasses.length; i++) reader.save(configClasses[i], configInsts[i], configPaths[i]);
+	}
+	
+	/**
+	 * Alternates between two different configs, so the files really get written every time.
+	 */
+	@Benchmark
+	public void saveChanged() throws IOException {
+		flip = !flip;
+		for(int i = 0; i < configClasses.length; i++) reader.save(configClasses[i], flip ? configInsts[i] : otherConfigInsts[i], scratchPaths[i]);
+	}
+}
@@ -0,0 +1,62 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import java.util.List;
+
+/**
+ * Straight-line code for one config class, generated at compile time by nacl's annotation processor
+ * (put @GenerateAdapter on the class, and the processor artifact on the annotation processor path).
+ * 
+ * Instead of finding config fields with reflection and getting at them through method handles, ConfigReader asks the adapter:
+ * it makes instances with a plain constructor call, looks keys up with a switch, and parses values straight into fields.
+ * Codons are still looked up at runtime, since they can be registered at runtime, but the ones for primitives get called
+ * without boxing anything.
+ * 
+ * Slots are indexes into keys(), the same as ConfigSchema.Entry#slot.
+ */
+public interface ConfigAdapter<T> {
+	/**
+	 * The suffix on the binary name of the config class that makes the binary name of its adapter.
+	 */
+	String SUFFIX = "_NaclAdapter";
+	
+	Class<T> configClass();
+	
+	/**
+	 * The names of the config fields, in the order they're declared in.
+	 * These are the fields ConfigReader#skipField wouldn't skip (with the default skipField, anyway).
+	 */
+	List<String> keys();
+	
+	/**
+	 * @return A new instance of the config class, made with its zero-argument constructor.
+	 */
+	T newInstance();
+	
+	/**
+	 * @return The slot of the config file key stored in buf[start, end), or -1 if there isn't one.
+	 */
+	int slot(char[] buf, int start, int end);
+	
+	/**
+	 * @return An accessor that reads and writes the field in this slot directly.
+	 */
+	FieldAccessor accessor(int slot);
+	
+	/**
+	 * Parse the value in text[start, end) with the entry's codon, and assign it to the entry's field.
+	 */
+	void parseInto(Object configInst, ConfigSchema.Entry entry, CharSequence text, int start, int end);
+	
+	/**
+	 * Write the value of the entry's field with the entry's codon, onto the end of the StringBuilder.
+	 */
+	void writeFrom(Object configInst, ConfigSchema.Entry entry, StringBuilder out);
+	
+	/**
+	 * For generated code. Whether buf, starting at start, holds the key. The caller already checked the length.
+	 */
+	static boolean keyEquals(char[] buf, int start, String key) {
+		for(int i = 0; i < key.length(); i++) if(buf[start + i] != key.charAt(i)) return false;
+		return true;
+	}
+}
@@ -0,0 +1,64 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The results of ConfigReader#readAll. One config file failing to load doesn't stop the others;
+ * check errors() (or call rethrow()) to find out what went wrong.
+ */
+public class ConfigBatch {
+	public ConfigBatch(Map<Job<?>, Object> loaded, Map<Job<?>, Throwable> errors) {
+		this.loaded = Collections.unmodifiableMap(loaded);
+		this.errors = Collections.unmodifiableMap(errors);
+	}
+	
+	private final Map<Job<?>, Object> loaded;
+	private final Map<Job<?>, Throwable> errors;
+	
+	/**
+	 * One config file to read.
+	 */
+	public record Job<T>(Class<T> configClass, Path path) {}
+	
+	public static <T> Job<T> job(Class<T> configClass, Path path) {
+		return new Job<>(configClass, path);
+	}
+	
+	/**
+	 * @return The config instance for this job.
+	 * @throws ConfigParseException if this job failed to load, or wasn't part of the batch
+	 */
+	public <T> T get(Job<T> job) {
+		Throwable error = errors.get(job);
+		if(error != null) throw new ConfigParseException("Problem reading config file " + job.path(), error);
+		
+		Object inst = loaded.get(job);
+		if(inst == null) throw new ConfigParseException("Config file " + job.path() + " wasn't part of this batch");
+		return job.configClass().cast(inst);
+	}
+	
+	public Map<Job<?>, Object> loaded() {
+		return loaded;
+	}
+	
+	public Map<Job<?>, Throwable> errors() {
+		return errors;
+	}
+	
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+	
+	/**
+	 * Throw an exception if any config file failed to load, with each problem attached as a suppressed exception.
+	 */
+	public void rethrow() {
+		if(errors.isEmpty()) return;
+		
+		ConfigParseException e = new ConfigParseException(errors.size() + " config file(s) failed to load");
+		errors.forEach((job, error) -> e.addSuppressed(new ConfigParseException("Problem reading config file " + job.path(), error)));
+		throw e;
+	}
+}
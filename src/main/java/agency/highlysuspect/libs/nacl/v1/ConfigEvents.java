@@ -0,0 +1,105 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events, so config loading shows up on the same timeline as GC, class loading and I/O.
+ * ConfigReader emits these itself, there's nothing to turn on besides JFR.
+ * 
+ * They're all enabled by default except FieldParse, which happens far too often. Turn on "nacl.FieldParse" in your
+ * JFR settings to see individual field parses that take longer than its threshold.
+ */
+public final class ConfigEvents {
+	private ConfigEvents() {}
+	
+	@Name("nacl.ConfigRead")
+	@Label("Config Read")
+	@Description("A whole ConfigReader#read: parsing (or loading from a snapshot), callbacks, and saving")
+	@Category({"nacl", "Config"})
+	public static final class Read extends Event {
+		@Label("Config Class")
+		public Class<?> configClass;
+		
+		@Label("Path")
+		public String path;
+		
+		@Label("Keys")
+		@Description("How many fields the config class has")
+		public int keys;
+		
+		@Label("Outcome")
+		@Description("Where the values came from (file, snapshot, or default), or failed")
+		public String outcome = "failed";
+	}
+	
+	@Name("nacl.ConfigParse")
+	@Label("Config Parse")
+	@Description("Reading a config file off the disk and parsing its values")
+	@Category({"nacl", "Config"})
+	public static final class Parse extends Event {
+		@Label("Config Class")
+		public Class<?> configClass;
+		
+		@Label("Path")
+		public String path;
+		
+		@Label("Size")
+		@DataAmount
+		public long bytes;
+		
+		@Label("Keys")
+		@Description("How many keys in the file matched a field")
+		public int keys;
+		
+		@Label("Unknown Keys")
+		@Description("How many keys in the file didn't match any field, and were passed to ConfigExt#upgrade")
+		public int unknownKeys;
+		
+		@Label("Outcome")
+		public String outcome = "failed";
+	}
+	
+	@Name("nacl.ConfigSave")
+	@Label("Config Save")
+	@Description("Rendering a config file and writing it to disk, if it changed")
+	@Category({"nacl", "Config"})
+	public static final class Save extends Event {
+		@Label("Config Class")
+		public Class<?> configClass;
+		
+		@Label("Path")
+		public String path;
+		
+		@Label("Size")
+		@DataAmount
+		public long bytes;
+		
+		@Label("Keys")
+		public int keys;
+		
+		@Label("Outcome")
+		@Description("written, unchanged (the file already had these contents), or failed")
+		public String outcome = "failed";
+	}
+	
+	@Name("nacl.FieldParse")
+	@Label("Config Field Parse")
+	@Description("Parsing one config value with its codon")
+	@Category({"nacl", "Config"})
+	@Enabled(false)
+	@Threshold("1 ms")
+	public static final class FieldParse extends Event {
+		@Label("Config Class")
+		public Class<?> configClass;
+		
+		@Label("Key")
+		public String key;
+		
+		@Label("Codon")
+		public String codon;
+		
+		@Label("Value Length")
+		@Description("How many characters long the value is")
+		public int valueLength;
+	}
+}
@@ -0,0 +1,140 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Holds the current instance of a config file that might get swapped out from under you, e.g. by ConfigWatcher or update().
+ * Call get() whenever you need a value; it's a single volatile read, so it's fine to call from hot code on any thread.
+ * Don't hang on to the returned instance for too long, or you won't see updates.
+ * 
+ * Instances in a handle are treated as immutable snapshots: nobody should change the fields of an instance once it's
+ * in a handle. To change the config, use update(), which makes a copy, changes that, and swaps it in. That way every
+ * thread always sees a consistent set of values, without taking any locks.
+ * 
+ * Get one from ConfigReader#readHandle or ConfigWatcher#watch.
+ */
+public class ConfigHandle<T> {
+	public ConfigHandle(ConfigReader reader, Class<T> configClass, Path path, T initial) {
+		this.reader = reader;
+		this.configClass = configClass;
+		this.path = path;
+		this.current = initial;
+	}
+	
+	public final ConfigReader reader;
+	public final Class<T> configClass;
+	public final Path path;
+	
+	private volatile T current;
+	private final List<Listener<? super T>> listeners = new CopyOnWriteArrayList<>();
+	
+	private static final VarHandle CURRENT;
+	static {
+		try {
+			CURRENT = MethodHandles.lookup().findVarHandle(ConfigHandle.class, "current", Object.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	public T get() {
+		return current;
+	}
+	
+	public ConfigHandle<T> addListener(Listener<? super T> listener) {
+		listeners.add(listener);
+		return this;
+	}
+	
+	public void removeListener(Listener<? super T> listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Change the config: copy the current instance, let the mutator change the copy, then swap the copy in.
+	 * 
+	 * The copy is validated and has ConfigExt#finish called before anyone else can see it, so derived values get
+	 * rebuilt once per change. If another thread swaps in a different instance in the meantime, this starts over
+	 * from that one, so the mutator can get called more than once; keep it free of side effects.
+	 * 
+	 * The copy is shallow. Assign new values to the fields instead of changing things like lists in place,
+	 * because those are still shared with the old instance.
+	 * 
+	 * This doesn't save the file. Pass the result to ConfigSaver#save for that.
+	 * 
+	 * @return The new instance.
+	 * @throws ConfigParseException if ConfigExt#validate rejects the changed config. The current instance is left alone.
+	 */
+	@SuppressWarnings("unchecked")
+	public T update(Consumer<? super T> mutator) {
+		ConfigSchema<T> schema = reader.schema(configClass);
+		while(true) {
+			T prev = current;
+			T next = reader.defaultInstance(configClass);
+			for(ConfigSchema.Entry entry : schema.entries) entry.set(next, entry.get(prev));
+			
+			mutator.accept(next);
+			reader.validate(next);
+			reader.finish(next);
+			
+			if(CURRENT.compareAndSet(this, prev, next)) {
+				Set<String> changedKeys = diff(prev, next);
+				if(!changedKeys.isEmpty()) notifyListeners(prev, next, changedKeys);
+				return next;
+			}
+		}
+	}
+	
+	/**
+	 * Replace the current instance, and let the listeners know what changed since whatever instance it replaced.
+	 * The new instance should be completely finished (validated, ConfigExt#finish called, etc) before calling this.
+	 */
+	@SuppressWarnings("unchecked")
+	public void publish(T next) {
+		T prev = (T) CURRENT.getAndSet(this, next);
+		Set<String> changedKeys = diff(prev, next);
+		if(!changedKeys.isEmpty()) notifyListeners(prev, next, changedKeys);
+	}
+	
+	/**
+	 * Replace the current instance, but only if it's still expected, and let the listeners know.
+	 * The new instance should be completely finished (validated, ConfigExt#finish called, etc) before calling this.
+	 * @param changedKeys The keys that are different between expected and next.
+	 * @return Whether it was replaced. If not, someone else got there first; get() the new instance and try again.
+	 */
+	public boolean publish(T expected, T next, Set<String> changedKeys) {
+		if(!CURRENT.compareAndSet(this, expected, next)) return false;
+		notifyListeners(expected, next, changedKeys);
+		return true;
+	}
+	
+	/**
+	 * @return The keys (field names) whose values are different between these two instances.
+	 */
+	public Set<String> diff(T a, T b) {
+		Set<String> changedKeys = new LinkedHashSet<>();
+		for(ConfigSchema.Entry entry : reader.schema(configClass).entries) {
+			if(!Objects.deepEquals(entry.get(a), entry.get(b))) changedKeys.add(entry.key);
+		}
+		return changedKeys;
+	}
+	
+	private void notifyListeners(T prev, T next, Set<String> changedKeys) {
+		for(Listener<? super T> listener : listeners) listener.onChange(prev, next, changedKeys);
+	}
+	
+	public interface Listener<T> {
+		/**
+		 * @param changedKeys The config keys (field names) whose values are different between the old and new instance
+		 */
+		void onChange(T oldConfig, T newConfig, Set<String> changedKeys);
+	}
+}
@@ -0,0 +1,162 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One layer in a stack of config files, each overriding some of the keys of the ones below it.
+ * The bottom layer is the config class's defaults (ConfigReader#baseLayer); stack files on top with overlay.
+ * 
+ * A layer only stores the values its own file sets. Everything else is looked up in the layers below,
+ * so lots of small layers (say, one per world) on top of one big one cost about as much memory as their overrides do.
+ * Layers never change once they're made, so it's fine to share them between threads, and to stack several layers on the same one.
+ * 
+ * Layer files aren't saved back to disk, since they're supposed to only contain overrides.
+ * ConfigExt#upgrade isn't called either; unknown keys are kept in unknownKeys instead.
+ */
+public final class ConfigLayer<T> {
+	ConfigLayer(ConfigReader reader, ConfigSchema<T> schema, @Nullable ConfigLayer<T> below, String name, int[] slots, Object[] values, Map<String, String> unknownKeys) {
+		this.reader = reader;
+		this.schema = schema;
+		this.below = below;
+		this.name = name;
+		this.slots = slots;
+		this.values = values;
+		this.unknownKeys = Collections.unmodifiableMap(unknownKeys);
+	}
+	
+	public final ConfigReader reader;
+	public final ConfigSchema<T> schema;
+	/**
+	 * The layer this one overrides, or null if this is the bottom layer.
+	 */
+	public final @Nullable ConfigLayer<T> below;
+	/**
+	 * Where this layer came from. What origin() reports.
+	 */
+	public final String name;
+	/**
+	 * Keys in this layer's file that don't correspond to any config field.
+	 */
+	public final Map<String, String> unknownKeys;
+	
+	/**
+	 * The slots this layer sets, sorted, and their values. The bottom layer sets every slot.
+	 */
+	private final int[] slots;
+	private final Object[] values;
+	
+	/**
+	 * get() builds this when it's first called.
+	 */
+	private volatile @Nullable T merged;
+	
+	/**
+	 * Read a config file as a layer on top of this one. Only the keys in the file are parsed.
+	 * If the file doesn't exist, the new layer doesn't override anything.
+	 */
+	public ConfigLayer<T> overlay(String name, Path path) throws IOException {
+		return reader.readLayer(this, name, path);
+	}
+	
+	/**
+	 * Read a config file as a layer on top of this one, named after the path.
+	 */
+	public ConfigLayer<T> overlay(Path path) throws IOException {
+		return overlay(path.toString(), path);
+	}
+	
+	/**
+	 * @return Whether this layer itself sets the field in this slot.
+	 */
+	public boolean sets(int slot) {
+		return Arrays.binarySearch(slots, slot) >= 0;
+	}
+	
+	/**
+	 * @return How many fields this layer itself sets.
+	 */
+	public int size() {
+		return slots.length;
+	}
+	
+	/**
+	 * @return The value of the field in this slot, from the topmost layer that sets it.
+	 */
+	public Object value(int slot) {
+		return origin(slot).ownValue(slot);
+	}
+	
+	/**
+	 * @return The value of the field with this key, from the topmost layer that sets it.
+	 * @throws ConfigParseException if there's no such field.
+	 */
+	public Object value(String key) {
+		return value(slot(key));
+	}
+	
+	/**
+	 * @return The topmost layer (this one or one below it) that sets the field in this slot.
+	 */
+	public ConfigLayer<T> origin(int slot) {
+		//The bottom layer sets every slot, so this doesn't run off the end
+		ConfigLayer<T> layer = this;
+		while(!layer.sets(slot)) layer = layer.below;
+		return layer;
+	}
+	
+	/**
+	 * @return The name of the topmost layer that sets the field with this key.
+	 * @throws ConfigParseException if there's no such field.
+	 */
+	public String origin(String key) {
+		return origin(slot(key)).name;
+	}
+	
+	/**
+	 * @return The name of the layer each field's value comes from, keyed by field, in the order they're declared in.
+	 */
+	public Map<String, String> origins() {
+		Map<String, String> origins = new LinkedHashMap<>();
+		for(ConfigSchema.Entry entry : schema.entries) origins.put(entry.key, origin(entry.slot).name);
+		return origins;
+	}
+	
+	/**
+	 * @return A config instance with every field set to its value from the topmost layer that sets it, validated and finished.
+	 * Built the first time it's asked for, then kept. It holds the same value objects as the layers do, nothing's copied, so don't change it.
+	 * It does have a slot for every field though, so if you've got a lot of layers and only need a few values out of each, value() is cheaper.
+	 */
+	public T get() {
+		T merged = this.merged;
+		if(merged == null) {
+			merged = reader.defaultInstance(schema.configClass);
+			for(ConfigSchema.Entry entry : schema.entries) entry.set(merged, value(entry.slot));
+			reader.validate(merged);
+			reader.finish(merged);
+			this.merged = merged;
+		}
+		return merged;
+	}
+	
+	private Object ownValue(int slot) {
+		return values[Arrays.binarySearch(slots, slot)];
+	}
+	
+	private int slot(String key) {
+		ConfigSchema.Entry entry = schema.get(key);
+		if(entry == null) throw new ConfigParseException("Config class " + schema.configClass.getName() + " has no field " + key);
+		return entry.slot;
+	}
+	
+	@Override
+	public String toString() {
+		return below == null ? name : below + " < " + name;
+	}
+}
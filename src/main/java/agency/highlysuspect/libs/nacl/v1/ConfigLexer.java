@@ -0,0 +1,182 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Walks over the key/value lines of a config file in one pass, without chopping it up into a String per line.
+ * Call next() until it returns false; after each call, the key and value are available as spans into text().
+ * 
+ * Same rules as always: lines are trimmed, blank lines and lines starting with # are skipped,
+ * and the first occurrence of the (trimmed) delimiter separates the key from the value.
+ * Keys and values are trimmed too.
+ */
+public class ConfigLexer {
+	public ConfigLexer(CharBuffer text, String trimmedKvDelimiter, Object source) {
+		if(text.hasArray()) {
+			this.buf = text.array();
+			this.pos = text.arrayOffset() + text.position();
+			this.end = text.arrayOffset() + text.limit();
+		} else {
+			this.buf = new char[text.remaining()];
+			text.duplicate().get(buf);
+			this.pos = 0;
+			this.end = buf.length;
+		}
+		
+		this.delimiter = trimmedKvDelimiter.toCharArray();
+		this.source = source;
+	}
+	
+	private final char[] buf;
+	private final int end;
+	private final char[] delimiter;
+	private final Object source;
+	
+	private int pos;
+	private int line = 0;
+	
+	private int keyStart, keyEnd, valueStart, valueEnd;
+	private CharSequence chars;
+	
+	/**
+	 * Read a whole file's worth of UTF-8, in one read sized to fit the file.
+	 */
+	public static CharBuffer readChars(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer bytes = ByteBuffer.allocate((int) size);
+			while(bytes.hasRemaining() && channel.read(bytes) != -1);
+			return decode(bytes.flip());
+		}
+	}
+	
+	/**
+	 * Read UTF-8 from the channel until it runs dry.
+	 */
+	public static CharBuffer readChars(ReadableByteChannel channel) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(8192);
+		while(channel.read(bytes) != -1) {
+			if(!bytes.hasRemaining()) {
+				bytes = ByteBuffer.allocate(bytes.capacity() * 2).put(bytes.flip());
+			}
+		}
+		return decode(bytes.flip());
+	}
+	
+	private static CharBuffer decode(ByteBuffer bytes) throws IOException {
+		//Same error handling as Files.readAllLines: choke on malformed input instead of silently replacing it
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPORT)
+			.onUnmappableCharacter(CodingErrorAction.REPORT);
+		return decoder.decode(bytes);
+	}
+	
+	/**
+	 * Advance to the next key/value line.
+	 * @return false if the end of the file has been reached
+	 * @throws ConfigParseException if a line is missing the key/value delimiter
+	 */
+	public boolean next() {
+		while(pos < end) {
+			//Find the end of this line. Same line terminators as BufferedReader: \n, \r, or \r\n
+			int lineStart = pos;
+			int lineEnd = pos;
+			while(lineEnd < end && buf[lineEnd] != '\n' && buf[lineEnd] != '\r') lineEnd++;
+			
+			pos = lineEnd;
+			if(pos < end && buf[pos++] == '\r' && pos < end && buf[pos] == '\n') pos++;
+			line++;
+			
+			//Trim, in the same sense as String#trim
+			while(lineStart < lineEnd && buf[lineStart] <= ' ') lineStart++;
+			while(lineEnd > lineStart && buf[lineEnd - 1] <= ' ') lineEnd--;
+			
+			//Skip blank lines and comments
+			if(lineStart == lineEnd || buf[lineStart] == '#') continue;
+			
+			//Make sure there's a delimiter between the key and the value
+			int delimIdx = indexOfDelimiter(lineStart, lineEnd);
+			if(delimIdx == -1) {
+				throw new ConfigParseException("No key/value delimiter on line " + line + " in config file " + source);
+			}
+			
+			keyStart = lineStart;
+			keyEnd = delimIdx;
+			while(keyEnd > keyStart && buf[keyEnd - 1] <= ' ') keyEnd--;
+			
+			valueStart = delimIdx + delimiter.length;
+			valueEnd = lineEnd;
+			while(valueStart < valueEnd && buf[valueStart] <= ' ') valueStart++;
+			
+			return true;
+		}
+		
+		return false;
+	}
+	
+	private int indexOfDelimiter(int start, int end) {
+		outer:
+		for(int i = start; i <= end - delimiter.length; i++) {
+			for(int j = 0; j < delimiter.length; j++) {
+				if(buf[i + j] != delimiter[j]) continue outer;
+			}
+			return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * The backing array that the key and value spans index into.
+	 */
+	public char[] text() {
+		return buf;
+	}
+	
+	/**
+	 * The backing array as a CharSequence, for handing spans of it to Codon#parse.
+	 */
+	public CharSequence chars() {
+		if(chars == null) chars = CharBuffer.wrap(buf);
+		return chars;
+	}
+	
+	/**
+	 * The 1-indexed line number of the current key/value line.
+	 */
+	public int line() {
+		return line;
+	}
+	
+	public int keyStart() {
+		return keyStart;
+	}
+	
+	public int keyEnd() {
+		return keyEnd;
+	}
+	
+	public int valueStart() {
+		return valueStart;
+	}
+	
+	public int valueEnd() {
+		return valueEnd;
+	}
+	
+	public String key() {
+		return new String(buf, keyStart, keyEnd - keyStart);
+	}
+	
+	public String value() {
+		return new String(buf, valueStart, valueEnd - valueStart);
+	}
+}
@@ -0,0 +1,94 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+
+/**
+ * Find out where the time goes when loading config files. Attach one with ConfigReader#setMetrics.
+ * 
+ * Every method has an empty default, so only implement the ones you care about. All times are in nanoseconds.
+ * Methods are called on whichever thread is doing the reading, so with ConfigReader#readAll they can be called concurrently.
+ * 
+ * When the reader's metrics are NONE (the default), it doesn't even look at the clock.
+ */
+public interface ConfigMetrics {
+	ConfigMetrics NONE = new ConfigMetrics() {};
+	
+	/**
+	 * A whole ConfigReader#read finished.
+	 * @param source Where the values came from.
+	 * @param allocatedBytes How much memory the reading thread allocated along the way, or -1 if the JVM can't tell.
+	 */
+	default void configRead(Class<?> configClass, Path configPath, Source source, long nanos, long allocatedBytes) {}
+	
+	/**
+	 * The config file was read off the disk (and decoded), before any lexing.
+	 */
+	default void fileRead(Path configPath, long bytes, long nanos) {}
+	
+	/**
+	 * The config file was split into keys and values. This is the total time spent in the lexer, not counting the time parsing values.
+	 */
+	default void lexed(Path configPath, int lines, long nanos) {}
+	
+	/**
+	 * A schema was built, which includes finding the codon for every field.
+	 */
+	default void schemaBuilt(Class<?> configClass, int fields, long nanos) {}
+	
+	/**
+	 * One field's value was parsed with its codon and stored in the field. Look at entry.codon to tally things up per codon.
+	 * @param valueLength The length of the value text, which gives away huge lists.
+	 */
+	default void fieldParsed(ConfigSchema.Entry entry, int valueLength, long nanos) {}
+	
+	/**
+	 * One of the ConfigExt methods was called.
+	 */
+	default void callback(Class<?> configClass, Callback callback, long nanos) {}
+	
+	/**
+	 * The config file text was rendered from a config instance.
+	 */
+	default void rendered(Class<?> configClass, long bytes, long nanos) {}
+	
+	/**
+	 * The config file was saved.
+	 * @param written false if the file was left alone because it already had the right contents
+	 */
+	default void written(Path configPath, long bytes, boolean written, long nanos) {}
+	
+	enum Source {
+		/**
+		 * Parsed from the config file.
+		 */
+		FILE,
+		/**
+		 * Loaded from a snapshot. See ConfigReader#setSnapshotDir.
+		 */
+		SNAPSHOT,
+		/**
+		 * There was no config file, so it's the default config.
+		 */
+		DEFAULT
+	}
+	
+	enum Callback {
+		UPGRADE,
+		VALIDATE,
+		FINISH
+	}
+	
+	/**
+	 * How many bytes the current thread has allocated since it started, or -1 if this JVM doesn't keep track.
+	 * Subtract two of these to see how much was allocated in between.
+	 */
+	static long threadAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+			return sun.getCurrentThreadAllocatedBytes();
+		}
+		return -1;
+	}
+}
@@ -3,29 +3,52 @@ package agency.highlysuspect.libs.nacl.v1;
 import agency.highlysuspect.libs.nacl.v1.annotation.*;
 import agency.highlysuspect.libs.nacl.v1.types.Codon;
 import agency.highlysuspect.libs.nacl.v1.types.CodonTypeLookup;
+import agency.highlysuspect.libs.nacl.v1.types.LazyCodon;
+import agency.highlysuspect.libs.nacl.v1.types.RegistryEntryCodon;
 import com.google.common.annotations.VisibleForTesting;
-import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
 
 public class ConfigReader {
 	public ConfigReader() {
-		this.typeLookup = new CodonTypeLookup();
+		this(CodonTypeLookup.BUILTIN);
+	}
+	
+	/**
+	 * A reader that knows about every codon registered on parentLookup, including ones registered on it later.
+	 * Codons registered on this reader don't go into parentLookup, so several readers can share one without stepping on each other.
+	 */
+	public ConfigReader(CodonTypeLookup parentLookup) {
+		this.typeLookup = new CodonTypeLookup(parentLookup);
 		setDelimiter(": ");
 	}
 	
 	public final CodonTypeLookup typeLookup;
 	public String kvDelimiter;
 	public String trimmedKvDelimiter;
+	public @Nullable Path snapshotDir = null;
+	public ConfigMetrics metrics = ConfigMetrics.NONE;
+	
+	protected final Map<Class<?>, ConfigSchema<?>> schemas = new ConcurrentHashMap<>();
+	/**
+	 * Never modified, only replaced wholesale (see registerHeaderHandler), so render plans can tell which list they were built from.
+	 */
+	protected volatile List<HeaderHandler> headerHandlers = List.copyOf(HeaderHandler.defaults());
+	protected final Map<Class<?>, RenderPlan<?>> renderPlans = new ConcurrentHashMap<>();
 	
 	public ConfigReader registerNamedCodon(String name, Codon<?> codon) {
 		typeLookup.registerNamedCodon(name, codon);
@@ -37,6 +60,27 @@ public class ConfigReader {
 		return this;
 	}
 	
+	/**
+	 * Give Set and Map fields of registry entries (Set&lt;Block&gt; etc) a RegistryIdSet or RegistryIdMap, backed by raw IDs,
+	 * instead of a HashSet. See CodonTypeLookup#setPreferRegistryIdCollections.
+	 */
+	public ConfigReader setPreferRegistryIdCollections(boolean preferRegistryIdCollections) {
+		typeLookup.setPreferRegistryIdCollections(preferRegistryIdCollections);
+		return this;
+	}
+	
+	/**
+	 * Add something that writes extra lines above config fields. These go after the built-in ones, but before the "default: ____" line.
+	 */
+	public synchronized ConfigReader registerHeaderHandler(HeaderHandler handler) {
+		List<HeaderHandler> copy = new ArrayList<>(headerHandlers);
+		int defaultIndex = copy.indexOf(HeaderHandler.DEFAULT_VALUE);
+		copy.add(defaultIndex == -1 ? copy.size() : defaultIndex, handler);
+		headerHandlers = List.copyOf(copy);
+		renderPlans.clear();
+		return this;
+	}
+	
 	/**
 	 * Set the key/value delimiter for the parser.
 	 * This string (in .trim()med form) sits between the key and the value.
@@ -48,30 +92,358 @@ public class ConfigReader {
 		return this;
 	}
 	
+	/**
+	 * Keep a binary snapshot of each config file in this directory (it can be the config directory itself), or null to not keep them.
+	 * When the config file and the config class are both unchanged since the last read, read() loads the values
+	 * straight out of the snapshot, skipping parsing the file and saving it again.
+	 * Snapshots are just a cache. If one is stale or unreadable it's ignored, and the config file gets read like normal.
+	 */
+	public ConfigReader setSnapshotDir(@Nullable Path snapshotDir) {
+		this.snapshotDir = snapshotDir;
+		return this;
+	}
+	
+	/**
+	 * Report timings for each step of reading and saving config files to this.
+	 */
+	public ConfigReader setMetrics(ConfigMetrics metrics) {
+		this.metrics = metrics;
+		return this;
+	}
+	
 	public <T> T read(Class<T> configClass, Path configPath) throws IOException {
-		T configInst;
-		if(Files.exists(configPath)) {
-			//The config file exists. Parse it from disk
-			configInst = parse(configClass, configPath);
-			//It might be old, so call upgrade() to let the config decide what to do
-			if(configInst instanceof ConfigExt ext) {
-				ext.validate();
+		ConfigEvents.Read event = new ConfigEvents.Read();
+		event.begin();
+		try(RegistryEntryCodon.Pass pass = RegistryEntryCodon.Pass.begin()) {
+			return read0(configClass, configPath, event);
+		} finally {
+			if(event.shouldCommit()) {
+				event.configClass = configClass;
+				event.path = configPath.toString();
+				event.keys = keyCount(configClass);
+				event.commit();
 			}
+		}
+	}
+	
+	private <T> T read0(Class<T> configClass, Path configPath, ConfigEvents.Read event) throws IOException {
+		ConfigMetrics metrics = this.metrics;
+		boolean timed = metrics != ConfigMetrics.NONE;
+		long start = timed ? System.nanoTime() : 0;
+		long allocatedBefore = timed ? ConfigMetrics.threadAllocatedBytes() : 0;
+		ConfigMetrics.Source source;
+		
+		T configInst = readSnapshot(configClass, configPath);
+		if(configInst != null) {
+			//The file is exactly what was written last time, so parsing it would turn up no unknown keys, and saving it would be a no-op
+			source = ConfigMetrics.Source.SNAPSHOT;
+			upgrade(configInst, new HashMap<>());
+			validate(configInst);
+			finish(configInst);
 		} else {
-			//Create a default config instance
-			configInst = defaultInstance(configClass);
+			if(Files.exists(configPath)) {
+				//The config file exists. Parse it from disk
+				source = ConfigMetrics.Source.FILE;
+				configInst = parse(configClass, configPath);
+				//It might be old, so call upgrade() to let the config decide what to do
+				validate(configInst);
+			} else {
+				//Create a default config instance
+				source = ConfigMetrics.Source.DEFAULT;
+				configInst = defaultInstance(configClass);
+			}
+			
+			save(configClass, configInst, configPath); //Always save over the file (if it'd actually change)
+			writeSnapshot(configClass, configInst, configPath);
+			
+			finish(configInst);
 		}
 		
-		save(configClass, configInst, configPath); //Always save over the file
+		event.outcome = source.name().toLowerCase(Locale.ROOT);
+		if(timed) {
+			long allocated = allocatedBefore == -1 ? -1 : ConfigMetrics.threadAllocatedBytes() - allocatedBefore;
+			metrics.configRead(configClass, configPath, source, System.nanoTime() - start, allocated);
+		}
 		
+		return configInst;
+	}
+	
+	/**
+	 * Call ConfigExt#upgrade, if the config implements it.
+	 */
+	protected void upgrade(Object configInst, HashMap<String, String> unknownKeys) {
 		if(configInst instanceof ConfigExt ext) {
+			long start = metrics == ConfigMetrics.NONE ? 0 : System.nanoTime();
+			ext.upgrade(unknownKeys);
+			if(metrics != ConfigMetrics.NONE) metrics.callback(configInst.getClass(), ConfigMetrics.Callback.UPGRADE, System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Call ConfigExt#validate, if the config implements it.
+	 */
+	protected void validate(Object configInst) {
+		if(configInst instanceof ConfigExt ext) {
+			long start = metrics == ConfigMetrics.NONE ? 0 : System.nanoTime();
+			ext.validate();
+			if(metrics != ConfigMetrics.NONE) metrics.callback(configInst.getClass(), ConfigMetrics.Callback.VALIDATE, System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Call ConfigExt#finish, if the config implements it.
+	 */
+	protected void finish(Object configInst) {
+		if(configInst instanceof ConfigExt ext) {
+			long start = metrics == ConfigMetrics.NONE ? 0 : System.nanoTime();
 			ext.finish();
+			if(metrics != ConfigMetrics.NONE) metrics.callback(configInst.getClass(), ConfigMetrics.Callback.FINISH, System.nanoTime() - start);
 		}
+	}
+	
+	/**
+	 * Read a config file, and put it in a ConfigHandle, so it can be changed later with ConfigHandle#update.
+	 */
+	public <T> ConfigHandle<T> readHandle(Class<T> configClass, Path configPath) throws IOException {
+		return new ConfigHandle<>(this, configClass, configPath, read(configClass, configPath));
+	}
+	
+	/**
+	 * @return A layer holding the config class's defaults, to stack config files on top of with ConfigLayer#overlay.
+	 */
+	public <T> ConfigLayer<T> baseLayer(Class<T> configClass) {
+		ConfigSchema<T> schema = schema(configClass);
+		T defaults = defaultInstance(configClass);
 		
-		return configInst;
+		int[] slots = new int[schema.size()];
+		Object[] values = new Object[schema.size()];
+		for(ConfigSchema.Entry entry : schema.entries) {
+			slots[entry.slot] = entry.slot;
+			values[entry.slot] = entry.get(defaults);
+		}
+		
+		return new ConfigLayer<>(this, schema, null, "defaults", slots, values, new HashMap<>());
+	}
+	
+	/**
+	 * Read a config file as a layer on top of another one. Only the keys that are in the file get parsed.
+	 * If the file doesn't exist, the new layer doesn't override anything.
+	 */
+	public <T> ConfigLayer<T> readLayer(ConfigLayer<T> below, String name, Path configPath) throws IOException {
+		ConfigSchema<T> schema = below.schema;
+		HashMap<String, String> unknownKeys = new HashMap<>();
+		if(!Files.exists(configPath)) return new ConfigLayer<>(this, schema, below, name, new int[0], new Object[0], unknownKeys);
+		
+		ConfigLexer lexer = new ConfigLexer(ConfigLexer.readChars(configPath), trimmedKvDelimiter, configPath);
+		
+		//Slot -> parsed value, only for the keys that actually show up. If a key shows up twice, the last one wins
+		TreeMap<Integer, Object> parsed = new TreeMap<>();
+		try(RegistryEntryCodon.Pass pass = RegistryEntryCodon.Pass.begin()) {
+			while(lexer.next()) {
+				ConfigSchema.Entry entry = schema.get(lexer.text(), lexer.keyStart(), lexer.keyEnd());
+				if(entry == null) {
+					unknownKeys.put(lexer.key(), lexer.value());
+					continue;
+				}
+				
+				try {
+					if(entry.codon instanceof LazyCodon<?> lazy) parsed.put(entry.slot, lazy.parse(entry.field, lexer.chars(), lexer.valueStart(), lexer.valueEnd(), configPath, lexer.line()));
+					else parsed.put(entry.slot, entry.codon.parse(entry.field, lexer.chars(), lexer.valueStart(), lexer.valueEnd()));
+				} catch (RuntimeException e) {
+					throw new ConfigParseException("Problem parsing " + entry.key + " on line " + lexer.line() + " in config file " + configPath + ": " + e.getMessage(), e);
+				}
+			}
+		}
+		
+		int[] slots = new int[parsed.size()];
+		Object[] values = new Object[parsed.size()];
+		int i = 0;
+		for(Map.Entry<Integer, Object> e : parsed.entrySet()) {
+			slots[i] = e.getKey();
+			values[i] = e.getValue();
+			i++;
+		}
+		
+		return new ConfigLayer<>(this, schema, below, name, slots, values, unknownKeys);
+	}
+	
+	/**
+	 * Read a config file on the executor.
+	 */
+	public <T> CompletableFuture<T> readAsync(Class<T> configClass, Path configPath, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return read(configClass, configPath);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, executor);
+	}
+	
+	/**
+	 * Read a bunch of config files at once, using one thread per processor.
+	 * @see ConfigReader#readAll(Collection, Executor)
+	 */
+	public ConfigBatch readAll(Collection<? extends ConfigBatch.Job<?>> jobs) {
+		int threads = Math.max(1, Math.min(jobs.size(), Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "nacl config loader");
+			t.setDaemon(true);
+			return t;
+		});
+		
+		try {
+			return readAll(jobs, executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Read a bunch of config files at once, on the executor, and wait for all of them to finish.
+	 * If a config file fails to load, the rest still get loaded; the problem is recorded in the returned ConfigBatch.
+	 */
+	public ConfigBatch readAll(Collection<? extends ConfigBatch.Job<?>> jobs, Executor executor) {
+		Map<ConfigBatch.Job<?>, CompletableFuture<?>> futures = new LinkedHashMap<>();
+		for(ConfigBatch.Job<?> job : jobs) futures.put(job, readAsync(job.configClass(), job.path(), executor));
+		
+		Map<ConfigBatch.Job<?>, Object> loaded = new LinkedHashMap<>();
+		Map<ConfigBatch.Job<?>, Throwable> errors = new LinkedHashMap<>();
+		futures.forEach((job, future) -> {
+			try {
+				loaded.put(job, future.join());
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause();
+				errors.put(job, cause instanceof UncheckedIOException uio ? uio.getCause() : cause);
+			}
+		});
+		
+		return new ConfigBatch(loaded, errors);
+	}
+	
+	/**
+	 * Get the schema for this config class, building it if it hasn't been built yet.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> ConfigSchema<T> schema(Class<T> configClass) {
+		ConfigSchema<T> schema = (ConfigSchema<T>) schemas.get(configClass);
+		//The schema has codons baked into it, so it's stale if any codons were registered since it was built
+		if(schema == null || schema.generation != typeLookup.generation()) {
+			long start = metrics == ConfigMetrics.NONE ? 0 : System.nanoTime();
+			schema = buildSchema(configClass);
+			if(metrics != ConfigMetrics.NONE) metrics.schemaBuilt(configClass, schema.size(), System.nanoTime() - start);
+			schemas.put(configClass, schema);
+		}
+		return schema;
+	}
+	
+	/**
+	 * How many fields the config class has, if its schema has been built. For events, which shouldn't cause anything to be built.
+	 */
+	private int keyCount(Class<?> configClass) {
+		ConfigSchema<?> schema = schemas.get(configClass);
+		return schema == null ? 0 : schema.size();
+	}
+	
+	protected <T> ConfigSchema<T> buildSchema(Class<T> configClass) {
+		int generation = typeLookup.generation();
+		ConfigAdapter<T> adapter = adapter(configClass);
+		List<ConfigSchema.Entry> entries = new ArrayList<>();
+		
+		if(adapter != null) {
+			//The adapter already knows which fields are config fields, and how to get at them
+			for(String key : adapter.keys()) {
+				Field field;
+				try {
+					field = configClass.getDeclaredField(key);
+				} catch (NoSuchFieldException e) {
+					throw new ConfigParseException("The generated adapter for config class " + configClass.getName() + " has a field " + key + " that the class doesn't, it's out of date", e);
+				}
+				entries.add(entry(configClass, entries.size(), field, adapter.accessor(entries.size()), adapter));
+			}
+		} else {
+			for(Field field : configClass.getDeclaredFields()) {
+				if(skipField(field)) continue;
+				field.setAccessible(true);
+				entries.add(entry(configClass, entries.size(), field, FieldAccessor.of(field), null));
+			}
+		}
+		
+		return new ConfigSchema<>(configClass, entries, generation, adapter);
+	}
+	
+	private ConfigSchema.Entry entry(Class<?> configClass, int slot, Field field, FieldAccessor accessor, @Nullable ConfigAdapter<?> adapter) {
+		try {
+			return new ConfigSchema.Entry(slot, field, typeLookup.find(field).bind(field), accessor, adapter);
+		} catch (ConfigParseException e) {
+			throw new ConfigParseException("Problem with field " + field.getName() + " in config class " + configClass.getName() + ": " + e.getMessage(), e);
+		}
+	}
+	
+	private static final ClassValue<ConfigAdapter<?>> ADAPTERS = new ClassValue<>() {
+		@Override
+		protected @Nullable ConfigAdapter<?> computeValue(Class<?> configClass) {
+			if(!configClass.isAnnotationPresent(GenerateAdapter.class)) return null;
+			
+			try {
+				Class<?> adapterClass = Class.forName(configClass.getName() + ConfigAdapter.SUFFIX, true, configClass.getClassLoader());
+				ConfigAdapter<?> adapter = (ConfigAdapter<?>) adapterClass.getDeclaredConstructor().newInstance();
+				return adapter.configClass() == configClass ? adapter : null;
+			} catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+				//Most likely the annotation processor just wasn't run. Reflection works too
+				return null;
+			}
+		}
+	};
+	
+	/**
+	 * @return The generated adapter for this config class, or null to read it with reflection.
+	 * There's only an adapter if the class is marked @GenerateAdapter and nacl's annotation processor ran on it.
+	 * Override this to return null if you've overridden skipField, since adapters don't know about it.
+	 */
+	@SuppressWarnings("unchecked")
+	protected @Nullable <T> ConfigAdapter<T> adapter(Class<T> configClass) {
+		return (ConfigAdapter<T>) ADAPTERS.get(configClass);
+	}
+	
+	/**
+	 * @return The config loaded from its snapshot, or null if there's no usable snapshot.
+	 */
+	protected @Nullable <T> T readSnapshot(Class<T> configClass, Path configPath) {
+		if(snapshotDir == null) return null;
+		Path snapshotPath = ConfigSnapshot.pathFor(snapshotDir, configPath);
+		if(snapshotPath == null || !Files.isRegularFile(snapshotPath) || !Files.isRegularFile(configPath)) return null;
+		
+		try {
+			ConfigSchema<T> schema = schema(configClass);
+			T configInst = defaultInstance(configClass);
+			if(ConfigSnapshot.read(Files.readAllBytes(snapshotPath), schema, ConfigSnapshot.fingerprint(renderPlan(configClass)), ConfigSnapshot.FileKey.of(configPath), configInst)) {
+				return configInst;
+			}
+		} catch (IOException | RuntimeException e) {
+			//Truncated or otherwise broken, or refers to a registry entry that's not there anymore. Fall back to the text file
+		}
+		return null;
+	}
+	
+	protected <T> void writeSnapshot(Class<T> configClass, T configInst, Path configPath) {
+		if(snapshotDir == null) return;
+		Path snapshotPath = ConfigSnapshot.pathFor(snapshotDir, configPath);
+		if(snapshotPath == null) return;
+		
+		try {
+			ConfigSchema<T> schema = schema(configClass);
+			Files.createDirectories(snapshotDir);
+			writeIfChanged(snapshotPath, ConfigSnapshot.write(schema, ConfigSnapshot.fingerprint(renderPlan(configClass)), ConfigSnapshot.FileKey.of(configPath), configInst));
+		} catch (IOException | RuntimeException e) {
+			//It's only a cache. The config file itself was saved fine, so carry on without it
+		}
 	}
 	
 	protected <T> T defaultInstance(Class<T> configClass) {
+		ConfigAdapter<T> adapter = adapter(configClass);
+		if(adapter != null) return adapter.newInstance();
+		
 		try {
 			return configClass.getDeclaredConstructor().newInstance();
 		} catch (ReflectiveOperationException e) {
@@ -80,170 +452,205 @@ public class ConfigReader {
 	}
 	
 	protected <T> T parse(Class<T> configClass, Path configPath) throws IOException {
-		List<String> lines = Files.readAllLines(configPath, StandardCharsets.UTF_8);
+		ConfigEvents.Parse event = new ConfigEvents.Parse();
+		event.begin();
+		try(RegistryEntryCodon.Pass pass = RegistryEntryCodon.Pass.begin()) {
+			T configInst = parse0(configClass, configPath, event);
+			event.outcome = "ok";
+			return configInst;
+		} finally {
+			if(event.shouldCommit()) {
+				event.configClass = configClass;
+				event.path = configPath.toString();
+				event.commit();
+			}
+		}
+	}
+	
+	private <T> T parse0(Class<T> configClass, Path configPath, ConfigEvents.Parse event) throws IOException {
+		ConfigMetrics metrics = this.metrics;
+		boolean timed = metrics != ConfigMetrics.NONE;
+		
+		long readStart = timed ? System.nanoTime() : 0;
+		CharBuffer text = ConfigLexer.readChars(configPath);
+		if(timed || event.isEnabled()) {
+			long bytes = Files.size(configPath);
+			event.bytes = bytes;
+			if(timed) metrics.fileRead(configPath, bytes, System.nanoTime() - readStart);
+		}
+		
+		ConfigLexer lexer = new ConfigLexer(text, trimmedKvDelimiter, configPath);
 		HashMap<String, String> unknownKeys = new HashMap<>();
+		ConfigSchema<T> schema = schema(configClass);
 		
 		T configInst = defaultInstance(configClass);
 		
-		for(int lineNo = 0; lineNo < lines.size(); lineNo++) {
-			String line = lines.get(lineNo).trim();
-			
-			//Skip blank lines and comments
-			if(line.isEmpty() || line.startsWith("#")) continue;
-			
-			//Make sure there's a delimiter between the key and the value
-			int colonIdx = line.indexOf(trimmedKvDelimiter);
-			if(colonIdx == -1) {
-				throw new ConfigParseException("No key/value delimiter on line " + lineNo + " in config file " + configPath);
-			}
-			
-			String key = line.substring(0, colonIdx).trim();
-			String value = line.substring(colonIdx + trimmedKvDelimiter.length()).trim();
+		//FieldParse is off by default, so don't make one for every single field just to find that out
+		boolean fieldEvents = new ConfigEvents.FieldParse().isEnabled();
+		
+		//Blank lines, comments, and the delimiter are all handled in the lexer
+		long lexNanos = 0;
+		while(true) {
+			long lexStart = timed ? System.nanoTime() : 0;
+			boolean more = lexer.next();
+			if(timed) lexNanos += System.nanoTime() - lexStart;
+			if(!more) break;
 			
 			//Find the field associated with this key
-			Field keyField = findConfigField(configClass, key);
-			if(keyField == null) {
+			ConfigSchema.Entry entry = schema.get(lexer.text(), lexer.keyStart(), lexer.keyEnd());
+			if(entry == null) {
 				//It's possible the config file format has changed, and this field is no longer relevant
 				//Ask the config what to do about it.
-				unknownKeys.put(key, value);
+				unknownKeys.put(lexer.key(), lexer.value());
+				event.unknownKeys++;
 				continue;
 			}
 			
-			keyField.setAccessible(true);
-			Codon<?> codon = typeLookup.find(keyField);
-			
+			long fieldStart = timed ? System.nanoTime() : 0;
+			ConfigEvents.FieldParse fieldEvent = fieldEvents ? new ConfigEvents.FieldParse() : null;
+			if(fieldEvent != null) fieldEvent.begin();
 			try {
-				keyField.set(configInst, codon.parse(keyField, value));
-			} catch (ReflectiveOperationException e) {
-				throw new ConfigParseException("problem setting field", e);
+				if(entry.codon instanceof LazyCodon<?> lazy) {
+					//Not parsed yet, but remember where it came from for when it is
+					entry.set(configInst, lazy.parse(entry.field, lexer.chars(), lexer.valueStart(), lexer.valueEnd(), configPath, lexer.line()));
+				} else {
+					entry.parseInto(configInst, lexer.chars(), lexer.valueStart(), lexer.valueEnd());
+				}
+			} catch (RuntimeException e) {
+				throw new ConfigParseException("Problem parsing " + entry.key + " on line " + lexer.line() + " in config file " + configPath + ": " + e.getMessage(), e);
+			}
+			event.keys++;
+			if(timed) metrics.fieldParsed(entry, lexer.valueEnd() - lexer.valueStart(), System.nanoTime() - fieldStart);
+			if(fieldEvent != null && fieldEvent.shouldCommit()) {
+				fieldEvent.configClass = configClass;
+				fieldEvent.key = entry.key;
+				fieldEvent.codon = entry.codon.getClass().getName();
+				fieldEvent.valueLength = lexer.valueEnd() - lexer.valueStart();
+				fieldEvent.commit();
 			}
 		}
+		if(timed) metrics.lexed(configPath, lexer.line(), lexNanos);
 		
-		if(configInst instanceof ConfigExt ext) ext.upgrade(unknownKeys);
+		upgrade(configInst, unknownKeys);
 		
 		return configInst;
 	}
 	
 	protected @Nullable <T> Field findConfigField(Class<T> configClass, String name) {
-		try {
-			Field field = configClass.getDeclaredField(name);
-			return skipField(field) ? null : field;
-		} catch (ReflectiveOperationException e) {
-			return null;
-		}
+		ConfigSchema.Entry entry = schema(configClass).get(name);
+		return entry == null ? null : entry.field;
 	}
 	
 	protected boolean skipField(Field field) {
 		return ((field.getModifiers() & (Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_TRANSIENT)) != 0) || field.getAnnotation(Skip.class) != null;
 	}
 	
+	/**
+	 * Get the render plan for this config class, building it if it hasn't been built yet.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> RenderPlan<T> renderPlan(Class<T> configClass) {
+		ConfigSchema<T> schema = schema(configClass);
+		List<HeaderHandler> handlers = headerHandlers;
+		RenderPlan<T> plan = (RenderPlan<T>) renderPlans.get(configClass);
+		//Checking the handlers too, in case a plan built with the old list got put back after registerHeaderHandler cleared them
+		if(plan == null || plan.schema != schema || plan.handlers != handlers || !plan.kvDelimiter.equals(kvDelimiter)) {
+			try(RegistryEntryCodon.Pass pass = RegistryEntryCodon.Pass.begin()) {
+				plan = new RenderPlan<>(schema, handlers, kvDelimiter, System.lineSeparator(), defaultInstance(configClass));
+			}
+			renderPlans.put(configClass, plan);
+		}
+		return plan;
+	}
+	
 	@VisibleForTesting
 	public <T> List<String> stringify(Class<T> configClass, T configInst) {
-		T defaultConfig = defaultInstance(configClass); //For writing the "default: ____" comments
-		
-		List<String> lines = new ArrayList<>();
-		
-		for(Field field : configClass.getDeclaredFields()) {
-			if(skipField(field)) continue;
-			field.setAccessible(true);
-			
-			//todo: this is getting messy, and i think breaking each annotation out into its own separate (extensible) handler would be a good idea
-			
-			BlankLine bl = field.getDeclaredAnnotation(BlankLine.class);
-			if(bl != null) for(int i = 0; i < bl.lines(); i++) lines.add("");
-			
-			Section sect = field.getDeclaredAnnotation(Section.class);
-			if(sect != null) {
-				String title = sect.value();
-				String bar = StringUtils.repeat('#', title.length() + 6);
-				lines.add(bar);                   // ################
-				lines.add("## " + title + " ##"); // ## My Section ##
-				lines.add(bar);                   // ################
-				lines.add("");                    // 
-			}
+		return renderPlan(configClass).renderLines(configInst);
+	}
+	
+	protected <T> void save(Class<T> configClass, T configInst, Path configPath) throws IOException {
+		ConfigEvents.Save event = new ConfigEvents.Save();
+		event.begin();
+		try(RegistryEntryCodon.Pass pass = RegistryEntryCodon.Pass.begin()) {
+			RenderPlan<T> plan = renderPlan(configClass);
+			ConfigMetrics metrics = this.metrics;
+			boolean timed = metrics != ConfigMetrics.NONE;
 			
-			Comment comment = field.getDeclaredAnnotation(Comment.class);
-			if(comment != null) {
-				for(String c : comment.value()) {
-					lines.add("# " + c);
-				}
+			long start = timed ? System.nanoTime() : 0;
+			byte[] contents = plan.renderBytes(configInst);
+			if(timed) {
+				long now = System.nanoTime();
+				metrics.rendered(configClass, contents.length, now - start);
+				start = now;
 			}
 			
-			Example example = field.getDeclaredAnnotation(Example.class);
-			if(example != null) {
-				for(String c : example.value()) {
-					lines.add("# Example: " + c);
-				}
-			}
+			boolean written = writeIfChanged(configPath, contents);
+			if(timed) metrics.written(configPath, contents.length, written, System.nanoTime() - start);
 			
-			Note note = field.getDeclaredAnnotation(Note.class);
-			if(note != null) {
-				boolean first = true;
-				for(String noteLine : note.value()) {
-					lines.add((first ? "# Note: " : "#       ") + noteLine);
-					first = false;
-				}
+			event.bytes = contents.length;
+			event.outcome = written ? "written" : "unchanged";
+		} finally {
+			if(event.shouldCommit()) {
+				event.configClass = configClass;
+				event.path = configPath.toString();
+				event.keys = keyCount(configClass);
+				event.commit();
 			}
-			
-			AtLeast atl = field.getDeclaredAnnotation(AtLeast.class);
-			if(atl != null) {
-				if(atl.byteValue() != Byte.MIN_VALUE) {
-					lines.add("# At least: " + atl.byteValue());
-				} else if(atl.shortValue() != Short.MIN_VALUE) {
-					lines.add("# At least: " + atl.shortValue());
-				} else if(atl.intValue() != Integer.MIN_VALUE) {
-					lines.add("# At least: " + atl.intValue());
-				} else if(atl.longValue() != Long.MIN_VALUE) {
-					lines.add("# At least: " + atl.longValue());
-				} else if(!Float.isNaN(atl.floatValue())) {
-					lines.add("# At least: " + atl.floatValue());
-				} else if(!Double.isNaN(atl.doubleValue())) {
-					lines.add("# At least: " + atl.doubleValue());
-				}
+		}
+	}
+	
+	/**
+	 * Write the file, unless it already has exactly these contents.
+	 * Leaving it alone means no pointless disk writes, and its modification time doesn't change.
+	 * @return true if the file was written
+	 */
+	protected boolean writeIfChanged(Path path, byte[] contents) throws IOException {
+		if(hasContents(path, contents)) return false;
+		writeAtomically(path, contents);
+		return true;
+	}
+	
+	protected boolean hasContents(Path path, byte[] contents) throws IOException {
+		if(!Files.isRegularFile(path) || Files.size(path) != contents.length) return false;
+		
+		//Compare a chunk at a time, bailing out at the first difference
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer chunk = ByteBuffer.allocate(8192);
+			int offset = 0;
+			while(offset < contents.length) {
+				chunk.clear();
+				int read = channel.read(chunk);
+				if(read == -1 || read > contents.length - offset) return false;
+				if(chunk.flip().mismatch(ByteBuffer.wrap(contents, offset, read)) != -1) return false;
+				offset += read;
 			}
-			
-			AtMost atm = field.getDeclaredAnnotation(AtMost.class);
-			if(atm != null) {
-				if(atm.byteValue() != Byte.MAX_VALUE) {
-					lines.add("# At most: " + atm.byteValue());
-				} else if(atm.shortValue() != Short.MAX_VALUE) {
-					lines.add("# At most: " + atm.shortValue());
-				} else if(atm.intValue() != Integer.MAX_VALUE) {
-					lines.add("# At most: " + atm.intValue());
-				} else if(atm.longValue() != Long.MAX_VALUE) {
-					lines.add("# At most: " + atm.longValue());
-				} else if(!Float.isNaN(atm.floatValue())) {
-					lines.add("# At most: " + atm.floatValue());
-				} else if(!Double.isNaN(atm.doubleValue())) {
-					lines.add("# At most: " + atm.doubleValue());
-				}
+			return channel.read(chunk.clear()) == -1;
+		}
+	}
+	
+	/**
+	 * Writes to a temporary file next to the destination, then moves it into place, so crashing partway through
+	 * can't leave a half-written config file behind.
+	 */
+	protected void writeAtomically(Path path, byte[] contents) throws IOException {
+		Path dir = path.toAbsolutePath().getParent();
+		//Not Files.createTempFile, because that makes the file owner-only on unix
+		Path temp = dir.resolve("." + path.getFileName() + "." + Long.toHexString(System.nanoTime()) + "-" + Thread.currentThread().getId() + ".tmp");
+		
+		try {
+			try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+				ByteBuffer buf = ByteBuffer.wrap(contents);
+				while(buf.hasRemaining()) channel.write(buf);
+				channel.force(true);
 			}
 			
-			Codon<?> codon = typeLookup.find(field);
 			try {
-				SkipDefault skip = field.getAnnotation(SkipDefault.class);
-				if(skip == null) {
-					String defaultValue = codon.writeErased(field, field.get(defaultConfig));
-					lines.add("# Default: " + (defaultValue.isEmpty() ? "<empty>" : defaultValue));
-				} else {
-					if(!skip.insteadUse().isEmpty()) {
-						lines.add("# Default: " + skip.insteadUse());
-					}
-				}
-				
-				lines.add(field.getName() + kvDelimiter + codon.writeErased(field, field.get(configInst)));
-			} catch (ReflectiveOperationException e) {
-				throw new ConfigParseException("reflective kaboom", e);
+				Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
 			}
-			
-			//blank line after the field
-			lines.add("");
+		} finally {
+			Files.deleteIfExists(temp);
 		}
-		
-		return lines;
-	}
-	
-	protected <T> void save(Class<T> configClass, T configInst, Path configPath) throws IOException {
-		Files.write(configPath, stringify(configClass, configInst));
 	}
 }
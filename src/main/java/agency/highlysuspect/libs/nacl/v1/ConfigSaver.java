@@ -0,0 +1,193 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Saves config files on a background thread, so whoever changed the config doesn't have to wait for the disk.
+ * 
+ * Saves are coalesced: the first save request for a file is written debounceMillis later, and any more requests for
+ * the same file that come in before then just replace the instance that's going to be written. So a burst of changes
+ * turns into one write.
+ * 
+ * The config instance is read on the saver thread, when it's actually written, so don't keep changing it after
+ * passing it in (or pass a copy). Everything still waiting to be written is flushed when the saver is closed,
+ * and when the JVM shuts down.
+ * 
+ * Close the saver when you're done with it, to stop its thread. (One that's forgotten about can still be garbage collected
+ * once it has nothing left to write; the shutdown hook only keeps weak references to savers.)
+ */
+public class ConfigSaver implements Closeable {
+	private static final Logger LOGGER = LogManager.getLogger("nacl");
+	
+	/**
+	 * Savers that haven't been closed yet, for the shutdown hook to flush.
+	 */
+	private static final Set<ConfigSaver> LIVE = Collections.newSetFromMap(new WeakHashMap<>());
+	
+	static {
+		//The executor's thread is a daemon, so it'd get killed partway through the queue if nobody waited for it
+		Runtime.getRuntime().addShutdownHook(new Thread(ConfigSaver::flushAll, "nacl config saver shutdown"));
+	}
+	
+	public ConfigSaver(ConfigReader reader) {
+		this.reader = reader;
+		
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "nacl config saver");
+			t.setDaemon(true);
+			return t;
+		});
+		
+		synchronized(LIVE) {
+			LIVE.add(this);
+		}
+	}
+	
+	public final ConfigReader reader;
+	public long debounceMillis = 250;
+	public BiConsumer<Path, Throwable> errorHandler = (path, e) -> LOGGER.error("Problem saving config file " + path, e);
+	
+	private final ScheduledExecutorService executor;
+	
+	//Guarded by this
+	private final Map<Path, Pending> pending = new HashMap<>();
+	private boolean closed = false;
+	
+	public ConfigSaver setDebounceMillis(long debounceMillis) {
+		this.debounceMillis = debounceMillis;
+		return this;
+	}
+	
+	public ConfigSaver setErrorHandler(BiConsumer<Path, Throwable> errorHandler) {
+		this.errorHandler = errorHandler;
+		return this;
+	}
+	
+	/**
+	 * Save this config instance to the file at some point soon, on the saver thread.
+	 * @return A future that completes once the file has been written. If the request got coalesced with others, they all share a future.
+	 */
+	public synchronized <T> CompletableFuture<Void> save(Class<T> configClass, T configInst, Path configPath) {
+		if(closed) throw new IllegalStateException("ConfigSaver is closed");
+		
+		Path path = configPath.toAbsolutePath().normalize();
+		Pending existing = pending.get(path);
+		if(existing != null) {
+			//Already going to write this file soon, just write the newer instance instead
+			existing.configClass = configClass;
+			existing.configInst = configInst;
+			return existing.future;
+		}
+		
+		Pending next = new Pending(configClass, configInst, path);
+		pending.put(path, next);
+		next.task = executor.schedule(() -> write(path), debounceMillis, TimeUnit.MILLISECONDS);
+		return next.future;
+	}
+	
+	/**
+	 * Write everything that's waiting to be written, right now.
+	 * @return A future that completes when they've all been written.
+	 */
+	public synchronized CompletableFuture<Void> flush() {
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for(Map.Entry<Path, Pending> entry : pending.entrySet()) {
+			Pending p = entry.getValue();
+			futures.add(p.future);
+			
+			//If the task already started it can't be cancelled, but then it's already writing, which is fine too
+			if(p.task != null && p.task.cancel(false)) {
+				Path path = entry.getKey();
+				if(executor.isShutdown()) write(path);
+				else executor.execute(() -> write(path));
+			}
+		}
+		
+		return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(e -> null);
+	}
+	
+	private void write(Path path) {
+		Pending p;
+		synchronized(this) {
+			p = pending.remove(path);
+		}
+		if(p != null) p.write();
+	}
+	
+	/**
+	 * Flush everything, wait for it to be written, then stop the saver thread.
+	 */
+	@Override
+	public void close() {
+		synchronized(this) {
+			if(closed) return;
+			closed = true;
+		}
+		
+		flush().join();
+		executor.shutdown();
+		
+		synchronized(LIVE) {
+			LIVE.remove(this);
+		}
+	}
+	
+	private static void flushAll() {
+		List<ConfigSaver> savers;
+		synchronized(LIVE) {
+			savers = new ArrayList<>(LIVE);
+		}
+		
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for(ConfigSaver saver : savers) futures.add(saver.flush());
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+	}
+	
+	/**
+	 * A file waiting to be written. configClass and configInst can be replaced until it's removed from the pending map.
+	 */
+	private class Pending {
+		Pending(Class<?> configClass, Object configInst, Path path) {
+			this.configClass = configClass;
+			this.configInst = configInst;
+			this.path = path;
+		}
+		
+		Class<?> configClass;
+		Object configInst;
+		final Path path;
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+		ScheduledFuture<?> task;
+		
+		@SuppressWarnings("unchecked")
+		void write() {
+			Class<Object> configClass = (Class<Object>) this.configClass;
+			try {
+				reader.save(configClass, configInst, path);
+				//Keep the snapshot up to date too, so the next startup doesn't have to parse the file
+				reader.writeSnapshot(configClass, configInst, path);
+				future.complete(null);
+			} catch (Throwable e) {
+				errorHandler.accept(path, e);
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
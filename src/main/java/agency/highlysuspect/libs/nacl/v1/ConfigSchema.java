@@ -0,0 +1,223 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import agency.highlysuspect.libs.nacl.v1.annotation.*;
+import agency.highlysuspect.libs.nacl.v1.types.BinaryInput;
+import agency.highlysuspect.libs.nacl.v1.types.BinaryOutput;
+import agency.highlysuspect.libs.nacl.v1.types.Bounds;
+import agency.highlysuspect.libs.nacl.v1.types.Codon;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a ConfigReader needs to know about a config class, worked out once and then reused.
+ * Which fields are config fields, which Codon handles each of them, and which annotations they have.
+ * 
+ * Build one with ConfigReader#schema, which caches them.
+ * If the config class has a generated ConfigAdapter, the schema is built from that instead of by reflection.
+ */
+public class ConfigSchema<T> {
+	public ConfigSchema(Class<T> configClass, List<Entry> entries, int generation) {
+		this(configClass, entries, generation, null);
+	}
+	
+	public ConfigSchema(Class<T> configClass, List<Entry> entries, int generation, @Nullable ConfigAdapter<T> adapter) {
+		this.configClass = configClass;
+		this.generation = generation;
+		this.adapter = adapter;
+		this.entries = Collections.unmodifiableList(entries);
+		
+		this.entriesByKey = new HashMap<>();
+		for(Entry entry : entries) entriesByKey.put(entry.key, entry);
+		
+		//Open-addressed table for looking keys up straight out of the lexer's buffer, without making a String first.
+		//Sized to a power of two at least twice the number of entries, so there's always an empty slot to stop probing at.
+		this.spanTable = new Entry[Integer.highestOneBit(Math.max(entries.size(), 1) * 2) * 2];
+		for(Entry entry : entries) {
+			int i = entry.key.hashCode() & (spanTable.length - 1);
+			while(spanTable[i] != null) i = (i + 1) & (spanTable.length - 1);
+			spanTable[i] = entry;
+		}
+	}
+	
+	public final Class<T> configClass;
+	/**
+	 * The CodonTypeLookup#generation the codons in this schema were looked up in.
+	 */
+	public final int generation;
+	/**
+	 * The generated adapter the schema was built from, or null if it was built with reflection.
+	 */
+	public final @Nullable ConfigAdapter<T> adapter;
+	/**
+	 * In the order the fields are declared in, which is also the order they're written to the config file.
+	 */
+	public final List<Entry> entries;
+	private final Map<String, Entry> entriesByKey;
+	private final Entry[] spanTable;
+	
+	/**
+	 * @return The entry corresponding to this config file key, or null if there isn't one.
+	 */
+	public @Nullable Entry get(String key) {
+		return entriesByKey.get(key);
+	}
+	
+	/**
+	 * @return The entry corresponding to the config file key stored in buf[start, end), or null if there isn't one.
+	 */
+	public @Nullable Entry get(char[] buf, int start, int end) {
+		if(adapter != null) {
+			int slot = adapter.slot(buf, start, end);
+			return slot == -1 ? null : entries.get(slot);
+		}
+		
+		//Same hash as String#hashCode
+		int hash = 0;
+		for(int i = start; i < end; i++) hash = 31 * hash + buf[i];
+		
+		int len = end - start;
+		for(int i = hash & (spanTable.length - 1); spanTable[i] != null; i = (i + 1) & (spanTable.length - 1)) {
+			String key = spanTable[i].key;
+			if(key.length() != len) continue;
+			
+			boolean match = true;
+			for(int j = 0; j < len; j++) {
+				if(key.charAt(j) != buf[start + j]) {
+					match = false;
+					break;
+				}
+			}
+			if(match) return spanTable[i];
+		}
+		
+		return null;
+	}
+	
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * One config field.
+	 */
+	public static class Entry {
+		public Entry(int slot, Field field, Codon<?> codon) {
+			this(slot, field, codon, FieldAccessor.of(field), null);
+		}
+		
+		public Entry(int slot, Field field, Codon<?> codon, FieldAccessor accessor, @Nullable ConfigAdapter<?> adapter) {
+			this.slot = slot;
+			this.key = field.getName();
+			this.field = field;
+			this.codon = codon;
+			this.accessor = accessor;
+			this.adapter = adapter;
+			
+			//Read these once up front, annotation lookups aren't free
+			this.blankLine = field.getDeclaredAnnotation(BlankLine.class);
+			this.section = field.getDeclaredAnnotation(Section.class);
+			this.comment = field.getDeclaredAnnotation(Comment.class);
+			this.example = field.getDeclaredAnnotation(Example.class);
+			this.note = field.getDeclaredAnnotation(Note.class);
+			this.atLeast = field.getDeclaredAnnotation(AtLeast.class);
+			this.atMost = field.getDeclaredAnnotation(AtMost.class);
+			this.bounds = Bounds.of(field);
+			this.skipDefault = field.getAnnotation(SkipDefault.class);
+		}
+		
+		/**
+		 * The index of this entry in ConfigSchema#entries.
+		 */
+		public final int slot;
+		public final String key;
+		/**
+		 * For reading annotations and binding codons, not for getting or setting the value; use the accessor (or get and set) for that.
+		 * It's not necessarily setAccessible, since schemas that come from a generated ConfigAdapter never need it to be.
+		 */
+		public final Field field;
+		/**
+		 * Already bound to the field, see Codon#bind.
+		 */
+		public final Codon<?> codon;
+		public final FieldAccessor accessor;
+		/**
+		 * If there is one, parsing and writing go through it instead of through the accessor.
+		 */
+		public final @Nullable ConfigAdapter<?> adapter;
+		
+		public final @Nullable BlankLine blankLine;
+		public final @Nullable Section section;
+		public final @Nullable Comment comment;
+		public final @Nullable Example example;
+		public final @Nullable Note note;
+		public final @Nullable AtLeast atLeast;
+		public final @Nullable AtMost atMost;
+		/**
+		 * Which members of atLeast and atMost are actually set.
+		 */
+		public final Bounds bounds;
+		public final @Nullable SkipDefault skipDefault;
+		
+		public Object get(Object configInst) {
+			return accessor.get(configInst);
+		}
+		
+		public void set(Object configInst, Object value) {
+			accessor.set(configInst, value);
+		}
+		
+		/**
+		 * Parse the value with this entry's codon and store it in the field.
+		 */
+		public void parseInto(Object configInst, String value) {
+			if(adapter != null) adapter.parseInto(configInst, this, value, 0, value.length());
+			else codon.parseInto(field, value, accessor, configInst);
+		}
+		
+		/**
+		 * Parse the value in text[start, end) with this entry's codon and store it in the field.
+		 */
+		public void parseInto(Object configInst, CharSequence text, int start, int end) {
+			if(adapter != null) adapter.parseInto(configInst, this, text, start, end);
+			else codon.parseInto(field, text, start, end, accessor, configInst);
+		}
+		
+		/**
+		 * Write the field's current value with this entry's codon.
+		 */
+		public String writeFrom(Object configInst) {
+			if(adapter == null) return codon.writeFrom(field, accessor, configInst);
+			
+			StringBuilder out = new StringBuilder();
+			adapter.writeFrom(configInst, this, out);
+			return out.toString();
+		}
+		
+		/**
+		 * Write the field's current value with this entry's codon, onto the end of the StringBuilder.
+		 */
+		public void writeFrom(Object configInst, StringBuilder out) {
+			if(adapter != null) adapter.writeFrom(configInst, this, out);
+			else codon.writeFrom(field, accessor, configInst, out);
+		}
+		
+		/**
+		 * Read a value with this entry's codon's binary form and store it in the field.
+		 */
+		public void readBinaryInto(Object configInst, BinaryInput in) {
+			codon.readBinaryInto(field, in, accessor, configInst);
+		}
+		
+		/**
+		 * Write the field's current value with this entry's codon's binary form.
+		 */
+		public void writeBinaryFrom(Object configInst, BinaryOutput out) {
+			codon.writeBinaryFrom(field, accessor, configInst, out);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import agency.highlysuspect.libs.nacl.v1.types.BinaryInput;
+import agency.highlysuspect.libs.nacl.v1.types.BinaryOutput;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * The binary snapshot format behind ConfigReader#setSnapshotDir.
+ * 
+ * A snapshot is the already-parsed values of a config file, in schema order, written with each codon's binary form.
+ * It's only good for one exact version of the config file (by size, modification time, and a hash of the contents),
+ * and one exact version of the config class (by a fingerprint of the schema and the class file itself).
+ * If anything doesn't match, the snapshot is ignored and the config file gets parsed like normal.
+ */
+final class ConfigSnapshot {
+	private ConfigSnapshot() {}
+	
+	private static final byte[] MAGIC = "NACLSNAP".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * Bump this when the layout of the snapshot file changes.
+	 */
+	static final int VERSION = 1;
+	
+	/**
+	 * Identifies one particular version of a config file on disk.
+	 */
+	record FileKey(long size, long modified, int contentHash) {
+		static FileKey of(Path configPath) throws IOException {
+			long modified = Files.getLastModifiedTime(configPath).toMillis();
+			byte[] contents = Files.readAllBytes(configPath);
+			
+			CRC32C crc = new CRC32C();
+			crc.update(contents);
+			return new FileKey(contents.length, modified, (int) crc.getValue());
+		}
+	}
+	
+	/**
+	 * A hash of everything about the config class that affects how its file is parsed and written:
+	 * the keys, their types and annotations, which codons handle them, the class file itself,
+	 * and the text the render plan puts around each value (which covers the default values and the delimiter).
+	 */
+	static byte[] fingerprint(RenderPlan<?> plan) {
+		ConfigSchema<?> schema = plan.schema;
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is always supposed to be available", e);
+		}
+		
+		update(digest, schema.configClass.getName());
+		update(digest, plan.lineSeparator);
+		
+		for(ConfigSchema.Entry entry : schema.entries) {
+			Field field = entry.field;
+			update(digest, plan.prefix(entry));
+			update(digest, field.getGenericType().getTypeName());
+			update(digest, Arrays.toString(field.getDeclaredAnnotations()));
+			//Hidden classes (like lambdas) get a different name every run, so they can't be part of the fingerprint
+			if(!entry.codon.getClass().isHidden()) update(digest, entry.codon.getClass().getName());
+		}
+		
+		String className = schema.configClass.getName();
+		try(InputStream classFile = schema.configClass.getResourceAsStream(className.substring(className.lastIndexOf('.') + 1) + ".class")) {
+			if(classFile != null) digest.update(classFile.readAllBytes());
+		} catch (IOException ignored) {
+			//Still have the rest of the fingerprint
+		}
+		
+		return digest.digest();
+	}
+	
+	private static void update(MessageDigest digest, String s) {
+		digest.update(s.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+	
+	static <T> byte[] write(ConfigSchema<T> schema, byte[] fingerprint, FileKey key, T configInst) {
+		BinaryOutput out = new BinaryOutput(false);
+		out.writeBytes(MAGIC);
+		out.writeVarInt(VERSION);
+		out.writeVarInt(fingerprint.length);
+		out.writeBytes(fingerprint);
+		out.writeVarLong(key.size());
+		out.writeVarLong(key.modified());
+		out.writeVarInt(key.contentHash());
+		
+		out.writeVarInt(schema.size());
+		for(ConfigSchema.Entry entry : schema.entries) entry.writeBinaryFrom(configInst, out);
+		
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Load the values out of this snapshot into the (freshly constructed) config instance.
+	 * @return false if the snapshot is for a different version of the file or class, in which case configInst may have been partially overwritten.
+	 */
+	static <T> boolean read(byte[] snapshot, ConfigSchema<T> schema, byte[] fingerprint, FileKey key, T configInst) {
+		BinaryInput in = new BinaryInput(ByteBuffer.wrap(snapshot), false);
+		
+		if(!Arrays.equals(in.readBytes(MAGIC.length), MAGIC)) return false;
+		if(in.readVarInt() != VERSION) return false;
+		if(!Arrays.equals(in.readBytes(in.readVarInt()), fingerprint)) return false;
+		if(in.readVarLong() != key.size() || in.readVarLong() != key.modified() || in.readVarInt() != key.contentHash()) return false;
+		
+		if(in.readVarInt() != schema.size()) return false;
+		for(ConfigSchema.Entry entry : schema.entries) entry.readBinaryInto(configInst, in);
+		
+		return !in.hasRemaining();
+	}
+	
+	static @Nullable Path pathFor(Path snapshotDir, Path configPath) {
+		Path fileName = configPath.getFileName();
+		if(fileName == null) return null;
+		//The hash of the full path keeps same-named config files in different directories apart
+		return snapshotDir.resolve(fileName + "." + Integer.toHexString(configPath.toAbsolutePath().normalize().hashCode()) + ".naclsnap");
+	}
+}
@@ -0,0 +1,189 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import agency.highlysuspect.libs.nacl.v1.types.BinaryInput;
+import agency.highlysuspect.libs.nacl.v1.types.BinaryOutput;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * A compact binary encoding of config instances, for sending a server's config to its clients.
+ * 
+ * Only the fields that differ from a base instance are sent. The base is the default config unless you pass one,
+ * so a config that's mostly defaults costs a few bytes. If the client already has an older copy of the config
+ * (say, from when it joined), pass that as the base on both ends to only send what changed since then.
+ * 
+ * Values use each codon's binary form, so numbers are varints and registry entries are sent as their raw
+ * integer ID. That means both ends need the same registry contents, which is true for a connected client.
+ * Both ends also need the same version of the config class; decoding a payload from a different version throws.
+ * 
+ * This doesn't know anything about packets. Put the bytes in whatever packet you like.
+ * Nothing's cached, since config instances can be changed in place; if lots of players are joining, encode once and send everyone the same bytes.
+ */
+public class ConfigSync {
+	public ConfigSync(ConfigReader reader) {
+		this.reader = reader;
+	}
+	
+	public final ConfigReader reader;
+	
+	private final Map<Class<?>, Plan<?>> plans = new ConcurrentHashMap<>();
+	
+	/**
+	 * Encode the fields of this config that aren't the default.
+	 */
+	public <T> ByteBuffer encode(Class<T> configClass, T configInst) {
+		return encode(configClass, configInst, null);
+	}
+	
+	/**
+	 * Encode the fields of this config that are different from base (or from the default, if base is null).
+	 * @return A read-only buffer containing the payload.
+	 */
+	public <T> ByteBuffer encode(Class<T> configClass, T configInst, @Nullable T base) {
+		return ByteBuffer.wrap(encodeBytes(configClass, configInst, base)).asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Encode the fields of this config that are different from base (or from the default, if base is null),
+	 * onto the end of an existing BinaryOutput. The output should be using raw registry IDs.
+	 */
+	public <T> void encode(Class<T> configClass, T configInst, @Nullable T base, BinaryOutput out) {
+		out.writeBytes(encodeBytes(configClass, configInst, base));
+	}
+	
+	private <T> byte[] encodeBytes(Class<T> configClass, T configInst, @Nullable T base) {
+		Plan<T> plan = plan(configClass);
+		return encodeBytes(plan, configInst, base == null ? plan.defaults : base);
+	}
+	
+	private <T> byte[] encodeBytes(Plan<T> plan, T configInst, T base) {
+		BinaryOutput out = new BinaryOutput(true);
+		out.writeVarInt(plan.hash);
+		
+		List<ConfigSchema.Entry> entries = plan.schema.entries;
+		BitSet changed = new BitSet(entries.size());
+		for(int i = 0; i < entries.size(); i++) {
+			ConfigSchema.Entry entry = entries.get(i);
+			//(Lazy#equals compares unparsed values by their text, so this doesn't make Lazy fields parse)
+			if(!Objects.deepEquals(entry.get(configInst), entry.get(base))) changed.set(i);
+		}
+		out.writeVarInt(changed.cardinality());
+		
+		//Each changed field is written as how many fields were skipped since the last one, then the value
+		int prev = -1;
+		for(int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+			out.writeVarInt(i - prev - 1);
+			entries.get(i).writeBinaryFrom(configInst, out);
+			prev = i;
+		}
+		
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Decode a payload that was encoded against the default config.
+	 */
+	public <T> T decode(Class<T> configClass, ByteBuffer buf) {
+		return decode(configClass, buf, null);
+	}
+	
+	/**
+	 * Decode a payload that was encoded against base (or against the default, if base is null).
+	 * base itself isn't changed.
+	 * @return A new config instance, with ConfigExt#validate and ConfigExt#finish already called.
+	 * @throws ConfigParseException if the payload is corrupt, or from a different version of the config class.
+	 */
+	public <T> T decode(Class<T> configClass, ByteBuffer buf, @Nullable T base) {
+		BinaryInput in = new BinaryInput(buf, true);
+		T configInst = decode(configClass, in, base);
+		if(in.hasRemaining()) throw new ConfigParseException("Extra data after synced config " + configClass.getName());
+		return configInst;
+	}
+	
+	/**
+	 * Decode a payload out of the middle of an existing BinaryInput. The input should be using raw registry IDs.
+	 */
+	public <T> T decode(Class<T> configClass, BinaryInput in, @Nullable T base) {
+		Plan<T> plan = plan(configClass);
+		
+		T configInst = reader.defaultInstance(configClass);
+		//Copy base's values in by round-tripping them through the binary form, so the new config
+		//doesn't share any lists or sets with base, and changing one doesn't change the other
+		if(base != null) readDelta(plan, new BinaryInput(ByteBuffer.wrap(encodeBytes(plan, base, configInst)), true), configInst);
+		readDelta(plan, in, configInst);
+		
+		reader.validate(configInst);
+		reader.finish(configInst);
+		return configInst;
+	}
+	
+	private <T> void readDelta(Plan<T> plan, BinaryInput in, T configInst) {
+		Class<T> configClass = plan.schema.configClass;
+		List<ConfigSchema.Entry> entries = plan.schema.entries;
+		try {
+			if(in.readVarInt() != plan.hash) throw new ConfigParseException("Synced config " + configClass.getName() + " is from a different version of the config class");
+			
+			int changed = in.readVarInt();
+			int i = -1;
+			for(int n = 0; n < changed; n++) {
+				i += in.readVarInt() + 1;
+				if(i < 0 || i >= entries.size()) throw new ConfigParseException("Synced config " + configClass.getName() + " refers to field #" + i + ", but there are only " + entries.size());
+				entries.get(i).readBinaryInto(configInst, in);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new ConfigParseException("Synced config " + configClass.getName() + " was cut off", e);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T> Plan<T> plan(Class<T> configClass) {
+		ConfigSchema<T> schema = reader.schema(configClass);
+		Plan<T> plan = (Plan<T>) plans.get(configClass);
+		if(plan == null || plan.schema != schema) {
+			plan = new Plan<>(schema, hash(schema), reader.defaultInstance(configClass));
+			plans.put(configClass, plan);
+		}
+		return plan;
+	}
+	
+	/**
+	 * A cheap check that both ends agree on the fields, their order, and how they're encoded.
+	 */
+	private static int hash(ConfigSchema<?> schema) {
+		CRC32C crc = new CRC32C();
+		for(ConfigSchema.Entry entry : schema.entries) {
+			crc.update(entry.key.getBytes(StandardCharsets.UTF_8));
+			crc.update(0);
+			crc.update(entry.field.getGenericType().getTypeName().getBytes(StandardCharsets.UTF_8));
+			crc.update(0);
+			//Hidden classes (like lambdas) get a different name every run, so they can't be part of the hash
+			if(!entry.codon.getClass().isHidden()) crc.update(entry.codon.getClass().getName().getBytes(StandardCharsets.UTF_8));
+			crc.update(0);
+		}
+		return (int) crc.getValue();
+	}
+	
+	private static final class Plan<T> {
+		Plan(ConfigSchema<T> schema, int hash, T defaults) {
+			this.schema = schema;
+			this.hash = hash;
+			this.defaults = defaults;
+		}
+		
+		final ConfigSchema<T> schema;
+		final int hash;
+		/**
+		 * Only ever read, never handed out.
+		 */
+		final T defaults;
+	}
+}
@@ -0,0 +1,173 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Watches config files for changes, and reloads them when they change on disk.
+ * 
+ * Reloading goes through the same parse path as ConfigReader#read, including ConfigExt#validate and ConfigExt#finish,
+ * but the file is not saved again afterwards. If the new file doesn't parse, the old instance is kept and the error
+ * is passed to the error handler.
+ * 
+ * Editors tend to write files in several steps, so changes are debounced: a reload only happens once the file has
+ * stopped changing for a little while.
+ */
+public class ConfigWatcher implements Closeable {
+	private static final Logger LOGGER = LogManager.getLogger("nacl");
+	
+	public ConfigWatcher(ConfigReader reader) throws IOException {
+		this.reader = reader;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "nacl config reloader");
+			t.setDaemon(true);
+			return t;
+		});
+		
+		this.watchThread = new Thread(this::watchLoop, "nacl config watcher");
+		this.watchThread.setDaemon(true);
+		this.watchThread.start();
+	}
+	
+	public final ConfigReader reader;
+	public long debounceMillis = 250;
+	public BiConsumer<Path, Exception> errorHandler = (path, e) -> LOGGER.error("Problem reloading config file " + path, e);
+	
+	private final WatchService watchService;
+	private final ScheduledExecutorService executor;
+	private final Thread watchThread;
+	
+	private final Map<Path, WatchKey> watchedDirs = new ConcurrentHashMap<>();
+	private final Map<Path, ConfigHandle<?>> handles = new ConcurrentHashMap<>();
+	private final Map<Path, ScheduledFuture<?>> pendingReloads = new HashMap<>();
+	
+	private volatile boolean closed = false;
+	
+	public ConfigWatcher setDebounceMillis(long debounceMillis) {
+		this.debounceMillis = debounceMillis;
+		return this;
+	}
+	
+	public ConfigWatcher setErrorHandler(BiConsumer<Path, Exception> errorHandler) {
+		this.errorHandler = errorHandler;
+		return this;
+	}
+	
+	/**
+	 * Read the config file with ConfigReader#read, then keep an eye on it.
+	 * @return A handle that always contains the most recently loaded instance.
+	 */
+	public synchronized <T> ConfigHandle<T> watch(Class<T> configClass, Path configPath) throws IOException {
+		Path path = configPath.toAbsolutePath().normalize();
+		ConfigHandle<T> handle = new ConfigHandle<>(reader, configClass, path, reader.read(configClass, path));
+		
+		Path dir = path.getParent();
+		if(!watchedDirs.containsKey(dir)) {
+			watchedDirs.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+		}
+		handles.put(path, handle);
+		
+		return handle;
+	}
+	
+	public void unwatch(Path configPath) {
+		handles.remove(configPath.toAbsolutePath().normalize());
+	}
+	
+	private void watchLoop() {
+		while(!closed) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			
+			Path dir = (Path) key.watchable();
+			for(WatchEvent<?> event : key.pollEvents()) {
+				if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					//Lost track of what happened, so just check everything in that directory
+					for(Path path : handles.keySet()) if(path.getParent().equals(dir)) scheduleReload(path);
+				} else if(event.context() instanceof Path relative) {
+					Path path = dir.resolve(relative);
+					if(handles.containsKey(path)) scheduleReload(path);
+				}
+			}
+			
+			key.reset();
+		}
+	}
+	
+	private void scheduleReload(Path path) {
+		synchronized(pendingReloads) {
+			ScheduledFuture<?> pending = pendingReloads.get(path);
+			if(pending != null) pending.cancel(false);
+			
+			pendingReloads.put(path, executor.schedule(() -> {
+				synchronized(pendingReloads) {
+					pendingReloads.remove(path);
+				}
+				reload(path);
+			}, debounceMillis, TimeUnit.MILLISECONDS));
+		}
+	}
+	
+	/**
+	 * Reparse the file now, and publish the result to its handle if anything changed.
+	 */
+	public void reload(Path configPath) {
+		Path path = configPath.toAbsolutePath().normalize();
+		ConfigHandle<?> handle = handles.get(path);
+		if(handle == null || !Files.exists(path)) return;
+		
+		try {
+			reload(handle);
+		} catch (Exception e) {
+			errorHandler.accept(path, e);
+		}
+	}
+	
+	private <T> void reload(ConfigHandle<T> handle) throws IOException {
+		T next = reader.parse(handle.configClass, handle.path);
+		reader.validate(next);
+		
+		boolean finished = false;
+		while(true) {
+			//Diff against exactly the instance that's getting replaced, and start over if someone (like ConfigHandle#update) swaps in another one first
+			T prev = handle.get();
+			Set<String> changedKeys = handle.diff(prev, next);
+			
+			//Probably just ConfigReader saving the file, or someone touching it
+			if(changedKeys.isEmpty()) return;
+			
+			if(!finished) {
+				reader.finish(next);
+				finished = true;
+			}
+			if(handle.publish(prev, next, changedKeys)) return;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		watchService.close();
+		executor.shutdownNow();
+		watchThread.interrupt();
+	}
+}
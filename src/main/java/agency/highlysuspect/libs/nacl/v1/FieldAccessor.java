@@ -0,0 +1,269 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes one field of a config object.
+ * 
+ * The primitive methods (getInt, setInt, etc) don't box if the field is actually of that primitive type.
+ * If it isn't, they fall back to the boxed get/set. For a field of the wrapper type (Integer etc) that works, as long as it isn't null;
+ * for anything else it will probably throw a ClassCastException. Codons should use get/set for wrapper-typed fields.
+ */
+public interface FieldAccessor {
+	Object get(Object configInst);
+	void set(Object configInst, Object value);
+	
+	default boolean getBoolean(Object configInst) { return (Boolean) get(configInst); }
+	default byte getByte(Object configInst) { return (Byte) get(configInst); }
+	default short getShort(Object configInst) { return (Short) get(configInst); }
+	default int getInt(Object configInst) { return (Integer) get(configInst); }
+	default long getLong(Object configInst) { return (Long) get(configInst); }
+	default float getFloat(Object configInst) { return (Float) get(configInst); }
+	default double getDouble(Object configInst) { return (Double) get(configInst); }
+	
+	default void setBoolean(Object configInst, boolean value) { set(configInst, value); }
+	default void setByte(Object configInst, byte value) { set(configInst, value); }
+	default void setShort(Object configInst, short value) { set(configInst, value); }
+	default void setInt(Object configInst, int value) { set(configInst, value); }
+	default void setLong(Object configInst, long value) { set(configInst, value); }
+	default void setFloat(Object configInst, float value) { set(configInst, value); }
+	default void setDouble(Object configInst, double value) { set(configInst, value); }
+	
+	/**
+	 * Make the fastest accessor possible for this field, which should already be setAccessible.
+	 * Uses method handles, falling back to plain old reflection if they can't be made for some reason.
+	 */
+	static FieldAccessor of(Field field) {
+		try {
+			return new Handles(field);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return new Reflective(field);
+		}
+	}
+	
+	/**
+	 * Accessor backed by MethodHandles. Each one is adapted ahead of time to take an Object receiver, and
+	 * for primitive fields, a second pair is adapted to the unboxed type. Wrapper-typed fields only get the boxed pair.
+	 */
+	final class Handles implements FieldAccessor {
+		public Handles(Field field) throws ReflectiveOperationException {
+			this.field = field;
+			
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle getter = lookup.unreflectGetter(field);
+			MethodHandle setter = lookup.unreflectSetter(field);
+			
+			this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+			this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+			
+			this.primitive = field.getType();
+			if(primitive.isPrimitive()) {
+				this.primitiveGetter = getter.asType(MethodType.methodType(primitive, Object.class));
+				this.primitiveSetter = setter.asType(MethodType.methodType(void.class, Object.class, primitive));
+			} else {
+				this.primitiveGetter = null;
+				this.primitiveSetter = null;
+			}
+		}
+		
+		private final Field field;
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+		
+		/**
+		 * The type of the field. The primitive getter and setter only exist if this is a primitive type.
+		 */
+		private final Class<?> primitive;
+		private final MethodHandle primitiveGetter;
+		private final MethodHandle primitiveSetter;
+		
+		@Override
+		public Object get(Object configInst) {
+			try {
+				return (Object) getter.invokeExact(configInst);
+			} catch (Throwable e) {
+				throw kaboom("getting", e);
+			}
+		}
+		
+		@Override
+		public void set(Object configInst, Object value) {
+			try {
+				setter.invokeExact(configInst, value);
+			} catch (Throwable e) {
+				throw kaboom("setting", e);
+			}
+		}
+		
+		@Override
+		public boolean getBoolean(Object configInst) {
+			if(primitive != boolean.class) return FieldAccessor.super.getBoolean(configInst);
+			try {
+				return (boolean) primitiveGetter.invokeExact(configInst);
+			} catch (Throwable e) {
+				throw kaboom("getting", e);
+			}
+		}
+		
+		@Override
+		public byte getByte(Object configInst) {
+			if(primitive != byte.class) return FieldAccessor.super.getByte(configInst);
+			try {
+				return (byte) primitiveGetter.invokeExact(configInst);
+			} catch (Throwable e) {
+				throw kaboom("getting", e);
+			}
+		}
+		
+		@Override
+		public short getShort(Object configInst) {
+			if(primitive != short.class) return FieldAccessor.super.getShort(configInst);
+			try {
+				return (short) primitiveGetter.invokeExact(configInst);
+			} catch (Throwable e) {
+				throw kaboom("getting", e);
+			}
+		}
+		
+		@Override
+		public int getInt(Object configInst) {
+			if(primitive != int.class) return FieldAccessor.super.getInt(configInst);
+			try {
+				return (int) primitiveGetter.invokeExact(configInst);
+			} catch (Throwable e) {
+				throw kaboom("getting", e);
+			}
+		}
+		
+		@Override
+		public long getLong(Object configInst) {
+			if(primitive != long.class) return FieldAccessor.super.getLong(configInst);
+			try {
+				return (long) primitiveGetter.invokeExact(configInst);
+			} catch (Throwable e) {
+				throw kaboom("getting", e);
+			}
+		}
+		
+		@Override
+		public float getFloat(Object configInst) {
+			if(primitive != float.class) return FieldAccessor.super.getFloat(configInst);
+			try {
+				return (float) primitiveGetter.invokeExact(configInst);
+			} catch (Throwable e) {
+				throw kaboom("getting", e);
+			}
+		}
+		
+		@Override
+		public double getDouble(Object configInst) {
+			if(primitive != double.class) return FieldAccessor.super.getDouble(configInst);
+			try {
+				return (double) primitiveGetter.invokeExact(configInst);
+			} catch (Throwable e) {
+				throw kaboom("getting", e);
+			}
+		}
+		
+		@Override
+		public void setBoolean(Object configInst, boolean value) {
+			if(primitive != boolean.class) { FieldAccessor.super.setBoolean(configInst, value); return; }
+			try {
+				primitiveSetter.invokeExact(configInst, value);
+			} catch (Throwable e) {
+				throw kaboom("setting", e);
+			}
+		}
+		
+		@Override
+		public void setByte(Object configInst, byte value) {
+			if(primitive != byte.class) { FieldAccessor.super.setByte(configInst, value); return; }
+			try {
+				primitiveSetter.invokeExact(configInst, value);
+			} catch (Throwable e) {
+				throw kaboom("setting", e);
+			}
+		}
+		
+		@Override
+		public void setShort(Object configInst, short value) {
+			if(primitive != short.class) { FieldAccessor.super.setShort(configInst, value); return; }
+			try {
+				primitiveSetter.invokeExact(configInst, value);
+			} catch (Throwable e) {
+				throw kaboom("setting", e);
+			}
+		}
+		
+		@Override
+		public void setInt(Object configInst, int value) {
+			if(primitive != int.class) { FieldAccessor.super.setInt(configInst, value); return; }
+			try {
+				primitiveSetter.invokeExact(configInst, value);
+			} catch (Throwable e) {
+				throw kaboom("setting", e);
+			}
+		}
+		
+		@Override
+		public void setLong(Object configInst, long value) {
+			if(primitive != long.class) { FieldAccessor.super.setLong(configInst, value); return; }
+			try {
+				primitiveSetter.invokeExact(configInst, value);
+			} catch (Throwable e) {
+				throw kaboom("setting", e);
+			}
+		}
+		
+		@Override
+		public void setFloat(Object configInst, float value) {
+			if(primitive != float.class) { FieldAccessor.super.setFloat(configInst, value); return; }
+			try {
+				primitiveSetter.invokeExact(configInst, value);
+			} catch (Throwable e) {
+				throw kaboom("setting", e);
+			}
+		}
+		
+		@Override
+		public void setDouble(Object configInst, double value) {
+			if(primitive != double.class) { FieldAccessor.super.setDouble(configInst, value); return; }
+			try {
+				primitiveSetter.invokeExact(configInst, value);
+			} catch (Throwable e) {
+				throw kaboom("setting", e);
+			}
+		}
+		
+		private RuntimeException kaboom(String verb, Throwable e) {
+			if(e instanceof RuntimeException re) return re; //ClassCastException from a mistyped value, etc
+			return new ConfigParseException("problem " + verb + " field " + field.getName(), e);
+		}
+	}
+	
+	/**
+	 * Accessor backed by plain old reflection, for when method handles don't work out.
+	 */
+	record Reflective(Field field) implements FieldAccessor {
+		@Override
+		public Object get(Object configInst) {
+			try {
+				return field.get(configInst);
+			} catch (ReflectiveOperationException e) {
+				throw new ConfigParseException("problem getting field " + field.getName(), e);
+			}
+		}
+		
+		@Override
+		public void set(Object configInst, Object value) {
+			try {
+				field.set(configInst, value);
+			} catch (ReflectiveOperationException e) {
+				throw new ConfigParseException("problem setting field " + field.getName(), e);
+			}
+		}
+	}
+}
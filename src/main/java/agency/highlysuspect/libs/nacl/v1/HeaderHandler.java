@@ -0,0 +1,95 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import agency.highlysuspect.libs.nacl.v1.annotation.*;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * Writes the comments (or whatever else) above a field in the config file. Usually these look at one annotation.
+ * 
+ * Handlers are only called when a RenderPlan is built, not on every save, so the lines should only depend on the
+ * field and its default value. Register your own with ConfigReader#registerHeaderHandler.
+ */
+@FunctionalInterface
+public interface HeaderHandler {
+	/**
+	 * @param entry The field.
+	 * @param defaultConfig A default instance of the config class, for writing the "default: ____" comments.
+	 * @param lines Add lines to this, without line separators.
+	 */
+	void addLines(ConfigSchema.Entry entry, Object defaultConfig, List<String> lines);
+	
+	HeaderHandler BLANK_LINE = (entry, defaultConfig, lines) -> {
+		BlankLine bl = entry.blankLine;
+		if(bl != null) for(int i = 0; i < bl.lines(); i++) lines.add("");
+	};
+	
+	HeaderHandler SECTION = (entry, defaultConfig, lines) -> {
+		Section sect = entry.section;
+		if(sect != null) {
+			String title = sect.value();
+			String bar = StringUtils.repeat('#', title.length() + 6);
+			lines.add(bar);                   // ################
+			lines.add("## " + title + " ##"); // ## My Section ##
+			lines.add(bar);                   // ################
+			lines.add("");                    //
+		}
+	};
+	
+	HeaderHandler COMMENT = (entry, defaultConfig, lines) -> {
+		Comment comment = entry.comment;
+		if(comment != null) {
+			for(String c : comment.value()) {
+				lines.add("# " + c);
+			}
+		}
+	};
+	
+	HeaderHandler EXAMPLE = (entry, defaultConfig, lines) -> {
+		Example example = entry.example;
+		if(example != null) {
+			for(String c : example.value()) {
+				lines.add("# Example: " + c);
+			}
+		}
+	};
+	
+	HeaderHandler NOTE = (entry, defaultConfig, lines) -> {
+		Note note = entry.note;
+		if(note != null) {
+			boolean first = true;
+			for(String noteLine : note.value()) {
+				lines.add((first ? "# Note: " : "#       ") + noteLine);
+				first = false;
+			}
+		}
+	};
+	
+	HeaderHandler AT_LEAST = (entry, defaultConfig, lines) -> {
+		if(entry.bounds.atLeast != null) lines.add("# At least: " + entry.bounds.atLeast);
+	};
+	
+	HeaderHandler AT_MOST = (entry, defaultConfig, lines) -> {
+		if(entry.bounds.atMost != null) lines.add("# At most: " + entry.bounds.atMost);
+	};
+	
+	HeaderHandler DEFAULT_VALUE = (entry, defaultConfig, lines) -> {
+		SkipDefault skip = entry.skipDefault;
+		if(skip == null) {
+			String defaultValue = entry.writeFrom(defaultConfig);
+			lines.add("# Default: " + (defaultValue.isEmpty() ? "<empty>" : defaultValue));
+		} else {
+			if(!skip.insteadUse().isEmpty()) {
+				lines.add("# Default: " + skip.insteadUse());
+			}
+		}
+	};
+	
+	/**
+	 * The built-in handlers, in the order ConfigReader uses them.
+	 */
+	static List<HeaderHandler> defaults() {
+		return List.of(BLANK_LINE, SECTION, COMMENT, EXAMPLE, NOTE, AT_LEAST, AT_MOST, DEFAULT_VALUE);
+	}
+}
@@ -0,0 +1,134 @@
+package agency.highlysuspect.libs.nacl.v1;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How to write a config file for one config class, worked out ahead of time.
+ * 
+ * Everything that doesn't depend on the current config values (the comments, the "default: ____" lines, the keys
+ * and the delimiter) is rendered once, when the plan is built. Writing the file only has to render the current value of each field.
+ * 
+ * Get one from ConfigReader#renderPlan, which caches them.
+ */
+public class RenderPlan<T> {
+	public RenderPlan(ConfigSchema<T> schema, List<HeaderHandler> handlers, String kvDelimiter, String lineSeparator, T defaultConfig) {
+		this.schema = schema;
+		this.handlers = handlers;
+		this.kvDelimiter = kvDelimiter;
+		this.lineSeparator = lineSeparator;
+		
+		int size = schema.size();
+		this.headerLines = new ArrayList<>(size);
+		this.prefixes = new String[size];
+		
+		for(ConfigSchema.Entry entry : schema.entries) {
+			List<String> lines = new ArrayList<>();
+			for(HeaderHandler handler : handlers) handler.addLines(entry, defaultConfig, lines);
+			headerLines.add(Collections.unmodifiableList(lines));
+			
+			StringBuilder prefix = new StringBuilder();
+			for(String line : lines) prefix.append(line).append(lineSeparator);
+			prefix.append(entry.key).append(kvDelimiter);
+			prefixes[entry.slot] = prefix.toString();
+		}
+		
+		//Each field is followed by a blank line
+		this.suffix = lineSeparator + lineSeparator;
+	}
+	
+	public final ConfigSchema<T> schema;
+	/**
+	 * The header handlers this plan was rendered with, so ConfigReader can tell if more were registered since.
+	 */
+	public final List<HeaderHandler> handlers;
+	public final String kvDelimiter;
+	public final String lineSeparator;
+	private final List<List<String>> headerLines;
+	/**
+	 * Everything in the file before each field's value: its header lines, key, and the delimiter.
+	 */
+	private final String[] prefixes;
+	private final String suffix;
+	
+	/**
+	 * A guess at how long the file will be, so the builder doesn't have to grow much. Updated after every render.
+	 */
+	private volatile int sizeHint = 256;
+	
+	/**
+	 * @return The precomputed lines that go above this entry's key.
+	 */
+	public List<String> headerLines(ConfigSchema.Entry entry) {
+		return headerLines.get(entry.slot);
+	}
+	
+	/**
+	 * @return The precomputed text that goes right before this entry's value.
+	 */
+	public String prefix(ConfigSchema.Entry entry) {
+		return prefixes[entry.slot];
+	}
+	
+	/**
+	 * Write the whole config file to the Appendable (a Writer, StringBuilder...)
+	 */
+	public void render(T configInst, Appendable out) throws IOException {
+		if(out instanceof StringBuilder builder) {
+			render(configInst, builder);
+			return;
+		}
+		
+		StringBuilder value = new StringBuilder();
+		for(ConfigSchema.Entry entry : schema.entries) {
+			out.append(prefixes[entry.slot]);
+			value.setLength(0);
+			entry.writeFrom(configInst, value);
+			out.append(value);
+			out.append(suffix);
+		}
+	}
+	
+	/**
+	 * Write the whole config file onto the end of the StringBuilder. Values are written straight into it.
+	 */
+	public void render(T configInst, StringBuilder out) {
+		for(ConfigSchema.Entry entry : schema.entries) {
+			out.append(prefixes[entry.slot]);
+			entry.writeFrom(configInst, out);
+			out.append(suffix);
+		}
+	}
+	
+	public String renderString(T configInst) {
+		StringBuilder builder = new StringBuilder(sizeHint);
+		render(configInst, builder);
+		sizeHint = builder.length() + 64;
+		return builder.toString();
+	}
+	
+	/**
+	 * @return The config file, as UTF-8.
+	 */
+	public byte[] renderBytes(T configInst) {
+		return renderString(configInst).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * The config file as a list of lines, for looking at in tests. Not what's used for saving.
+	 */
+	public List<String> renderLines(T configInst) {
+		List<String> lines = new ArrayList<>();
+		for(ConfigSchema.Entry entry : schema.entries) {
+			lines.addAll(headerLines.get(entry.slot));
+			StringBuilder line = new StringBuilder(entry.key).append(kvDelimiter);
+			entry.writeFrom(configInst, line);
+			lines.add(line.toString());
+			lines.add("");
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,19 @@
+package agency.highlysuspect.libs.nacl.v1.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Have nacl's annotation processor generate a ConfigAdapter for this config class at compile time.
+ * ConfigReader uses it instead of reflection when it's there, and falls back to reflection when it isn't,
+ * so this is safe to put on a class even when the processor isn't set up.
+ * 
+ * The class and its config fields can't be private, since the adapter gets at them directly.
+ * @see agency.highlysuspect.libs.nacl.v1.ConfigAdapter
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateAdapter {
+}
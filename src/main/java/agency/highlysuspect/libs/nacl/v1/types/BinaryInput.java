@@ -0,0 +1,101 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads back what was written with a BinaryOutput. See Codon#readBinary.
+ * Running off the end of the buffer throws BufferUnderflowException.
+ */
+public class BinaryInput {
+	public BinaryInput(ByteBuffer buf, boolean rawRegistryIds) {
+		this.buf = buf;
+		this.rawRegistryIds = rawRegistryIds;
+	}
+	
+	private final ByteBuffer buf;
+	/**
+	 * Should match the BinaryOutput this was written with.
+	 */
+	public final boolean rawRegistryIds;
+	
+	public byte readByte() {
+		return buf.get();
+	}
+	
+	public byte[] readBytes(int length) {
+		if(length < 0 || length > buf.remaining()) throw new BufferUnderflowException();
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return bytes;
+	}
+	
+	public boolean readBoolean() {
+		return buf.get() != 0;
+	}
+	
+	public int readVarInt() {
+		int result = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			byte b = buf.get();
+			result |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) return result;
+		}
+		throw new ConfigParseException("VarInt too long");
+	}
+	
+	public long readVarLong() {
+		long result = 0;
+		for(int shift = 0; shift < 70; shift += 7) {
+			byte b = buf.get();
+			result |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0) return result;
+		}
+		throw new ConfigParseException("VarLong too long");
+	}
+	
+	public int readSignedVarInt() {
+		int i = readVarInt();
+		return (i >>> 1) ^ -(i & 1);
+	}
+	
+	public long readSignedVarLong() {
+		long l = readVarLong();
+		return (l >>> 1) ^ -(l & 1);
+	}
+	
+	public float readFloat() {
+		return buf.getFloat();
+	}
+	
+	public double readDouble() {
+		return buf.getDouble();
+	}
+	
+	public String readString() {
+		return new String(readBytes(readVarInt()), StandardCharsets.UTF_8);
+	}
+	
+	public <T> T readRegistryEntry(Registry<T> registry) {
+		if(rawRegistryIds) {
+			int rawId = readVarInt();
+			T value = registry.get(rawId);
+			//DefaultedRegistries hand back the default entry for IDs they don't have, so make sure it round-trips
+			if(value == null || registry.getRawId(value) != rawId) throw new ConfigParseException("Cannot find something with raw ID " + rawId + " in registry " + registry);
+			return value;
+		} else {
+			Identifier id = new Identifier(readString());
+			if(registry.containsId(id)) return registry.get(id);
+			else throw new ConfigParseException("Cannot find something named " + id + " in registry " + registry);
+		}
+	}
+	
+	public boolean hasRemaining() {
+		return buf.hasRemaining();
+	}
+}
@@ -0,0 +1,122 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A growable buffer that codons write a compact binary form of their values into. See Codon#writeBinary.
+ */
+public class BinaryOutput {
+	public BinaryOutput(boolean rawRegistryIds) {
+		this.rawRegistryIds = rawRegistryIds;
+	}
+	
+	/**
+	 * If true, registry entries are written as their raw integer ID. That's much smaller than the Identifier,
+	 * but it only makes sense to someone with the exact same registry contents (like a client connected to this server).
+	 */
+	public final boolean rawRegistryIds;
+	
+	private ByteBuffer buf = ByteBuffer.allocate(256);
+	
+	private void ensure(int bytes) {
+		if(buf.remaining() < bytes) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + bytes));
+			buf = bigger.put(buf.flip());
+		}
+	}
+	
+	public void writeByte(int b) {
+		ensure(1);
+		buf.put((byte) b);
+	}
+	
+	public void writeBytes(byte[] bytes) {
+		ensure(bytes.length);
+		buf.put(bytes);
+	}
+	
+	public void writeBoolean(boolean b) {
+		writeByte(b ? 1 : 0);
+	}
+	
+	/**
+	 * Writes the number in 1 to 5 bytes, 7 bits at a time. Best for small non-negative numbers like lengths and IDs.
+	 */
+	public void writeVarInt(int i) {
+		while((i & ~0x7F) != 0) {
+			writeByte((i & 0x7F) | 0x80);
+			i >>>= 7;
+		}
+		writeByte(i);
+	}
+	
+	public void writeVarLong(long l) {
+		while((l & ~0x7FL) != 0) {
+			writeByte((int) (l & 0x7F) | 0x80);
+			l >>>= 7;
+		}
+		writeByte((int) l);
+	}
+	
+	/**
+	 * Like writeVarInt, but zigzag-encodes the number first, so small negative numbers are small too.
+	 */
+	public void writeSignedVarInt(int i) {
+		writeVarInt((i << 1) ^ (i >> 31));
+	}
+	
+	public void writeSignedVarLong(long l) {
+		writeVarLong((l << 1) ^ (l >> 63));
+	}
+	
+	public void writeFloat(float f) {
+		ensure(4);
+		buf.putFloat(f);
+	}
+	
+	public void writeDouble(double d) {
+		ensure(8);
+		buf.putDouble(d);
+	}
+	
+	public void writeString(String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		writeBytes(bytes);
+	}
+	
+	public <T> void writeRegistryEntry(Registry<T> registry, T value) {
+		//DefaultedRegistries hand out the default entry's ID for things they don't have, so make sure it round-trips
+		if(rawRegistryIds) {
+			int rawId = registry.getRawId(value);
+			if(rawId < 0 || registry.get(rawId) != value) throw new ConfigParseException(value + " isn't in registry " + registry);
+			writeVarInt(rawId);
+		} else {
+			Identifier id = registry.getId(value);
+			if(id == null || registry.get(id) != value) throw new ConfigParseException(value + " isn't in registry " + registry);
+			writeString(id.toString());
+		}
+	}
+	
+	public int size() {
+		return buf.position();
+	}
+	
+	/**
+	 * @return A read-only view of everything written so far.
+	 */
+	public ByteBuffer toByteBuffer() {
+		return buf.duplicate().flip().asReadOnlyBuffer();
+	}
+	
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[buf.position()];
+		buf.duplicate().flip().get(bytes);
+		return bytes;
+	}
+}
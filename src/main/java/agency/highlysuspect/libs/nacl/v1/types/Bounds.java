@@ -0,0 +1,170 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
+import agency.highlysuspect.libs.nacl.v1.annotation.AtLeast;
+import agency.highlysuspect.libs.nacl.v1.annotation.AtMost;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+
+/**
+ * The @AtLeast and @AtMost bounds on a field, read out of the annotations once.
+ * 
+ * The annotations have a member per numeric type, and only one of them is supposed to be set. Bounds.of works out which
+ * one it is, and complains if there's more than one. Numeric codons then turn it into a range of their own type
+ * (intRange etc) when they're bound to the field (see Codon#bind), so checking a value is just two primitive comparisons.
+ */
+public final class Bounds {
+	private Bounds(@Nullable Number atLeast, @Nullable Number atMost) {
+		this.atLeast = atLeast;
+		this.atMost = atMost;
+	}
+	
+	public static final Bounds NONE = new Bounds(null, null);
+	
+	/**
+	 * The value of whichever @AtLeast member is set, in that member's type, or null if there's no lower bound.
+	 */
+	public final @Nullable Number atLeast;
+	/**
+	 * The value of whichever @AtMost member is set, in that member's type, or null if there's no upper bound.
+	 */
+	public final @Nullable Number atMost;
+	
+	/**
+	 * Reads the annotations every time, so hang on to the result; this is meant to be called once per field, when binding a codon
+	 * or building a schema, and not kept in a static cache that'd hold on to every config class it's ever seen.
+	 * @return The bounds on this field.
+	 * @throws ConfigParseException if more than one member of @AtLeast or @AtMost is set.
+	 */
+	public static Bounds of(Field field) {
+		AtLeast atl = field.getAnnotation(AtLeast.class);
+		AtMost atm = field.getAnnotation(AtMost.class);
+		if(atl == null && atm == null) return NONE;
+		
+		Number atLeast = null;
+		if(atl != null) {
+			if(atl.byteValue() != Byte.MIN_VALUE) atLeast = only(atLeast, atl.byteValue(), "@AtLeast");
+			if(atl.shortValue() != Short.MIN_VALUE) atLeast = only(atLeast, atl.shortValue(), "@AtLeast");
+			if(atl.intValue() != Integer.MIN_VALUE) atLeast = only(atLeast, atl.intValue(), "@AtLeast");
+			if(atl.longValue() != Long.MIN_VALUE) atLeast = only(atLeast, atl.longValue(), "@AtLeast");
+			if(!Float.isNaN(atl.floatValue())) atLeast = only(atLeast, atl.floatValue(), "@AtLeast");
+			if(!Double.isNaN(atl.doubleValue())) atLeast = only(atLeast, atl.doubleValue(), "@AtLeast");
+		}
+		
+		Number atMost = null;
+		if(atm != null) {
+			if(atm.byteValue() != Byte.MAX_VALUE) atMost = only(atMost, atm.byteValue(), "@AtMost");
+			if(atm.shortValue() != Short.MAX_VALUE) atMost = only(atMost, atm.shortValue(), "@AtMost");
+			if(atm.intValue() != Integer.MAX_VALUE) atMost = only(atMost, atm.intValue(), "@AtMost");
+			if(atm.longValue() != Long.MAX_VALUE) atMost = only(atMost, atm.longValue(), "@AtMost");
+			if(!Float.isNaN(atm.floatValue())) atMost = only(atMost, atm.floatValue(), "@AtMost");
+			if(!Double.isNaN(atm.doubleValue())) atMost = only(atMost, atm.doubleValue(), "@AtMost");
+		}
+		
+		return new Bounds(atLeast, atMost);
+	}
+	
+	private static Number only(@Nullable Number already, Number value, String annotation) {
+		if(already != null) throw new ConfigParseException(annotation + " has more than one value set (" + already + " and " + value + "), only set the one for the field's type");
+		return value;
+	}
+	
+	/**
+	 * Turn these bounds into a range for an integral type, whose values go from typeMin to typeMax.
+	 * A fractional bound is rounded inwards, so @AtLeast(doubleValue = 0.5) on an int field means at least 1.
+	 * @throws ConfigParseException if no value of the type could satisfy the bounds.
+	 */
+	public IntRange intRange(int typeMin, int typeMax) {
+		LongRange range = longRange(typeMin, typeMax);
+		return new IntRange((int) range.min, (int) range.max);
+	}
+	
+	public LongRange longRange() {
+		return longRange(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+	
+	private LongRange longRange(long typeMin, long typeMax) {
+		long min = typeMin, max = typeMax;
+		if(atLeast != null) min = Math.max(min, integral(atLeast, true));
+		if(atMost != null) max = Math.min(max, integral(atMost, false));
+		if(min > max) throw new ConfigParseException("No value between " + typeMin + " and " + typeMax + " is " + this);
+		return new LongRange(min, max);
+	}
+	
+	private static long integral(Number bound, boolean roundUp) {
+		if(bound instanceof Float || bound instanceof Double) {
+			double d = bound.doubleValue();
+			//Saturates at the ends of long, which the type's own limits clamp down again anyway
+			return (long) (roundUp ? Math.ceil(d) : Math.floor(d));
+		}
+		return bound.longValue();
+	}
+	
+	/**
+	 * Unset bounds are -Infinity and NaN (NaN being the biggest float, as far as Float#compare is concerned).
+	 */
+	public FloatRange floatRange() {
+		float min = atLeast == null ? Float.NEGATIVE_INFINITY : atLeast.floatValue();
+		float max = atMost == null ? Float.NaN : atMost.floatValue();
+		if(Float.compare(min, max) > 0) throw new ConfigParseException("No value is " + this);
+		return new FloatRange(min, max);
+	}
+	
+	public DoubleRange doubleRange() {
+		double min = atLeast == null ? Double.NEGATIVE_INFINITY : atLeast.doubleValue();
+		double max = atMost == null ? Double.NaN : atMost.doubleValue();
+		if(Double.compare(min, max) > 0) throw new ConfigParseException("No value is " + this);
+		return new DoubleRange(min, max);
+	}
+	
+	@Override
+	public String toString() {
+		if(atLeast == null && atMost == null) return "unbounded";
+		else if(atMost == null) return "at least " + atLeast;
+		else if(atLeast == null) return "at most " + atMost;
+		else return "at least " + atLeast + " and at most " + atMost;
+	}
+	
+	/**
+	 * Bounds for byte, short, and int values. Unset bounds are the limits of the type, which a parsed value can't be outside of anyway.
+	 */
+	public record IntRange(int min, int max) {
+		public int check(int x) {
+			if(x < min) throw new ConfigParseException("Value " + x + " is not at least " + min);
+			if(x > max) throw new ConfigParseException("Value " + x + " is not at most " + max);
+			return x;
+		}
+	}
+	
+	public record LongRange(long min, long max) {
+		public long check(long x) {
+			if(x < min) throw new ConfigParseException("Value " + x + " is not at least " + min);
+			if(x > max) throw new ConfigParseException("Value " + x + " is not at most " + max);
+			return x;
+		}
+	}
+	
+	/**
+	 * Compared with Float#compare, same as the bounds have always been checked: NaN is above every other value, so it's rejected
+	 * by an @AtMost (but not by an unset one), and -0.0 is below 0.0, so it's rejected by @AtLeast(floatValue = 0).
+	 */
+	public record FloatRange(float min, float max) {
+		public float check(float x) {
+			if(Float.compare(x, min) < 0) throw new ConfigParseException("Value " + x + " is not at least " + min);
+			if(Float.compare(x, max) > 0) throw new ConfigParseException("Value " + x + " is not at most " + max);
+			return x;
+		}
+	}
+	
+	/**
+	 * Compared with Double#compare, see FloatRange.
+	 */
+	public record DoubleRange(double min, double max) {
+		public double check(double x) {
+			if(Double.compare(x, min) < 0) throw new ConfigParseException("Value " + x + " is not at least " + min);
+			if(Double.compare(x, max) > 0) throw new ConfigParseException("Value " + x + " is not at most " + max);
+			return x;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package agency.highlysuspect.libs.nacl.v1.types;
 
 import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
+import agency.highlysuspect.libs.nacl.v1.FieldAccessor;
 import agency.highlysuspect.libs.nacl.v1.annotation.AtLeast;
 import agency.highlysuspect.libs.nacl.v1.annotation.AtMost;
 import net.minecraft.util.Identifier;
@@ -8,13 +9,15 @@ import net.minecraft.util.registry.Registry;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * It's like the DFU Codec, but shittier.
@@ -29,37 +32,137 @@ public interface Codon<T> {
 		return write(targetField, (T) value);
 	}
 	
+	/**
+	 * Parse the value, and store it into the config field.
+	 * Codons for primitive types override this to skip boxing the value.
+	 */
+	default void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+		accessor.set(configInst, parse(sourceField, value));
+	}
+	
+	/**
+	 * Write the value currently stored in the config field.
+	 * Codons for primitive types override this to skip boxing the value.
+	 */
+	default String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+		return writeErased(targetField, accessor.get(configInst));
+	}
+	
+	/**
+	 * Specialize this codon for one particular field, by reading anything it needs from the field (like its @AtLeast
+	 * and @AtMost bounds) once, instead of on every parse. ConfigReader calls this once per field when it builds a schema,
+	 * and uses the result for that field from then on. Throw a ConfigParseException if the field's annotations don't make sense.
+	 * 
+	 * The default just returns this codon. Codons that wrap other codons should bind the inner one too.
+	 */
+	default Codon<T> bind(Field field) {
+		return this;
+	}
+	
+	/**
+	 * Parse the value out of the characters text[start, end). This is what ConfigReader calls while reading a file.
+	 * By default it cuts out a String and calls parse(Field, String), so codons that only implement that still work.
+	 * Override it (or extend SpanCodon) to parse in place.
+	 */
+	default T parse(Field sourceField, CharSequence text, int start, int end) {
+		return parse(sourceField, Spans.toString(text, start, end));
+	}
+	
+	/**
+	 * Write the value onto the end of the StringBuilder. By default this appends the String from write(Field, T).
+	 */
+	default void write(Field targetField, T value, StringBuilder out) {
+		out.append(write(targetField, value));
+	}
+	
+	/**
+	 * Like parseInto, but out of the characters text[start, end).
+	 */
+	default void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+		parseInto(sourceField, Spans.toString(text, start, end), accessor, configInst);
+	}
+	
+	/**
+	 * Like writeFrom, but onto the end of the StringBuilder. This is what ConfigReader calls while writing a file.
+	 */
+	default void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+		out.append(writeFrom(targetField, accessor, configInst));
+	}
+	
+	/**
+	 * Write the value in a compact binary form, for things like ConfigReader's snapshot cache.
+	 * By default this is just the string from write(). Override it (along with readBinary) if your type has a smaller encoding.
+	 */
+	default void writeBinary(Field targetField, T value, BinaryOutput out) {
+		out.writeString(write(targetField, value));
+	}
+	
+	/**
+	 * Read back a value written with writeBinary.
+	 * By default this goes through parse(), so any validation in there happens again.
+	 */
+	default T readBinary(Field sourceField, BinaryInput in) {
+		return parse(sourceField, in.readString());
+	}
+	
+	/**
+	 * Like readBinary, but stores the value into the config field. Codons for primitive types override this to skip boxing the value.
+	 */
+	default void readBinaryInto(Field sourceField, BinaryInput in, FieldAccessor accessor, Object configInst) {
+		accessor.set(configInst, readBinary(sourceField, in));
+	}
+	
+	/**
+	 * Like writeBinary, but for the value currently stored in the config field. Codons for primitive types override this to skip boxing the value.
+	 */
+	@SuppressWarnings("unchecked")
+	default void writeBinaryFrom(Field targetField, FieldAccessor accessor, Object configInst, BinaryOutput out) {
+		writeBinary(targetField, (T) accessor.get(configInst), out);
+	}
+	
 	Codon<String> STRING = Codon.of((targetField, value) -> value, (targetField, value) -> value);
 	
-	Codon<Byte> BYTE = number("byte", Byte::parseByte, AtLeast::byteValue, AtMost::byteValue);
-	Codon<Short> SHORT = number("short", Short::parseShort, AtLeast::shortValue, AtMost::shortValue);
-	Codon<Integer> INTEGER = number("integer", Integer::parseInt, AtLeast::intValue, AtMost::intValue);
-	Codon<Long> LONG = number("long", Long::parseLong, AtLeast::longValue, AtMost::longValue);
-	Codon<Float> FLOAT = number("float", Float::parseFloat, AtLeast::floatValue, AtMost::floatValue);
-	Codon<Double> DOUBLE = number("double", Double::parseDouble, AtLeast::doubleValue, AtMost::doubleValue);
+	Codon<Byte> BYTE = new PrimitiveCodons.ByteCodon();
+	Codon<Short> SHORT = new PrimitiveCodons.ShortCodon();
+	Codon<Integer> INTEGER = new PrimitiveCodons.IntCodon();
+	Codon<Long> LONG = new PrimitiveCodons.LongCodon();
+	Codon<Float> FLOAT = new PrimitiveCodons.FloatCodon();
+	Codon<Double> DOUBLE = new PrimitiveCodons.DoubleCodon();
 	
-	Codon<Boolean> BOOLEAN = ofToString((sourceField, value) -> {
-		if(value.equalsIgnoreCase("true")) return true;
-		else if(value.equalsIgnoreCase("false")) return false;
-		else throw new ConfigParseException("Cannot parse " + value + " as a bool (true / false)");
-	});
+	Codon<Boolean> BOOLEAN = new PrimitiveCodons.BooleanCodon();
 	
-	Codon<Identifier> IDENTIFIER = ofToString((sourceField, value) -> {
-		try {
-			return new Identifier(value);
-		} catch (Exception e) {
-			throw new ConfigParseException("Cannot parse " + value + " as an Identifier");
-		}
-	});
+	Codon<Identifier> IDENTIFIER = ofSpans(
+		(targetField, id, out) -> out.append(id.getNamespace()).append(':').append(id.getPath()),
+		(sourceField, text, start, end) -> {
+			//Identifier needs a String anyway
+			String value = Spans.toString(text, start, end);
+			try {
+				return new Identifier(value);
+			} catch (Exception e) {
+				throw new ConfigParseException("Cannot parse " + value + " as an Identifier");
+			}
+		});
 	
 	/**
 	 * A codon that serializes elements of this registry as their Identifier.
 	 */
 	static <T> Codon<T> registryEntry(Registry<T> registry) {
-		return IDENTIFIER.dimap(id -> {
-			if(registry.containsId(id)) return registry.get(id);
-			else throw new ConfigParseException("Cannot find something named " + id + " in registry " + registry);
-		}, registry::getId);
+		return new RegistryEntryCodon<>(registry);
+	}
+	
+	/**
+	 * A codon for sets of entries of this registry, stored as a bitset over their raw IDs. Written like setOf.
+	 */
+	static <T> Codon<RegistryIdSet<T>> registryIdSet(Registry<T> registry) {
+		return new CompositeCodons.CollectionCodon<>(registryEntry(registry), size -> new RegistryIdSet<>(registry));
+	}
+	
+	/**
+	 * A codon for maps from entries of this registry to values. Parses to a RegistryIdMap, stored as an array indexed by raw ID.
+	 * Written as comma-separated key=value pairs.
+	 */
+	static <K, V> Codon<Map<K, V>> registryIdMap(Registry<K> registry, Codon<V> value) {
+		return new CompositeCodons.RegistryIdMapCodon<>(registry, value);
 	}
 	
 	/**
@@ -79,6 +182,33 @@ public interface Codon<T> {
 		};
 	}
 	
+	/**
+	 * Like Codon.of, but the functions work on spans of characters and StringBuilders, like SpanCodon.
+	 */
+	static <T> Codon<T> ofSpans(SpanWriter<T> writer, SpanParser<T> parser) {
+		return new SpanCodon<>() {
+			@Override
+			public void write(Field targetField, T value, StringBuilder out) {
+				writer.write(targetField, value, out);
+			}
+			
+			@Override
+			public T parse(Field sourceField, CharSequence text, int start, int end) {
+				return parser.parse(sourceField, text, start, end);
+			}
+		};
+	}
+	
+	@FunctionalInterface
+	interface SpanWriter<T> {
+		void write(Field targetField, T value, StringBuilder out);
+	}
+	
+	@FunctionalInterface
+	interface SpanParser<T> {
+		T parse(Field sourceField, CharSequence text, int start, int end);
+	}
+	
 	/**
 	 * A codon that's only able to parse, and can't write a default config value.
 	 */
@@ -99,43 +229,25 @@ public interface Codon<T> {
 	 * @param from Function to turn a U back into a T.
 	 */
 	default <U> Codon<U> dimap(Function<T, U> into, Function<U, T> from) {
-		return Codon.of((targetField, value) -> this.write(targetField, from.apply(value)), (sourceField, value) -> into.apply(this.parse(sourceField, value)));
+		return new CompositeCodons.DimapCodon<>(this, into, from);
 	}
 	
 	/**
 	 * Transforms this Codon&lt;T&gt; into a Codon&lt;Set&lt;T&gt;&gt;.
-	 * The set is immutable, I think.
+	 * The set is a HashSet.
 	 * Uses comma separation.
 	 */
 	default Codon<Set<T>> setOf() {
-		return Codon.of((targetField, set) ->
-			set.stream()
-				.map(e -> this.write(targetField, e))
-				.collect(Collectors.joining(", ")),
-			(sourceField, value) -> Arrays.stream(value.split(","))
-				.map(String::trim)
-				//.filter(s -> !s.isEmpty())
-				.map(s -> this.parse(sourceField, s))
-				.collect(Collectors.toSet()));
+		return new CompositeCodons.CollectionCodon<>(this, HashSet::new);
 	}
 	
 	/**
 	 * Transforms this Codon&lt;T&gt; into a Codon&lt;List&lt;T&gt;&gt;.
-	 * The list is immutable, I think.
+	 * The list is an ArrayList.
 	 * Uses comma separation.
 	 */
 	default Codon<List<T>> listOf() {
-		return Codon.of(
-			(targetField, list) ->
-				list.stream()
-					.map(e -> this.write(targetField, e))
-					.collect(Collectors.joining(", ")),
-			(sourceField, value) ->
-				Arrays.stream(value.split(","))
-					.map(String::trim)
-					//.filter(s -> !s.isEmpty())
-					.map(s -> this.parse(sourceField, s))
-					.collect(Collectors.toList()));
+		return new CompositeCodons.CollectionCodon<>(this, ArrayList::new);
 	}
 	
 	/**
@@ -143,9 +255,15 @@ public interface Codon<T> {
 	 * Empty strings are Optional.empty(), nonempty strings delegate to the original codon
 	 */
 	default Codon<Optional<T>> optionalOf() {
-		return Codon.of(
-			(targetField, opt) -> opt.map(x -> this.write(targetField, x)).orElse(""),
-			(sourceField, value) -> value.isEmpty() ? Optional.empty() : Optional.of(this.parse(sourceField, value)));
+		return new CompositeCodons.OptionalCodon<>(this);
+	}
+	
+	/**
+	 * Transforms this Codon&lt;T&gt; into a Codon&lt;Lazy&lt;T&gt;&gt;.
+	 * The text is kept around, and this codon only parses it when Lazy#get is first called.
+	 */
+	default Codon<Lazy<T>> lazyOf() {
+		return new LazyCodon<>(this);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -156,38 +274,14 @@ public interface Codon<T> {
 	}
 	
 	/**
-	 * A codon for a numeric type
+	 * A codon for a numeric type. The bounds are read once, when the codon is bound to a field, but the comparisons
+	 * go through Comparable; the built-in codons for primitive numbers (Codon.INTEGER etc) don't box anything.
 	 * @param name The name of the numeric type, used in error messages
 	 * @param parser Something like Integer.parseInt
 	 * @param atLeastExtractor Which field of the atLeast annotation is relevant for this type
 	 * @param atMostExtractor Which field of the atMost annotation is relevant for this type
 	 */
 	static <T extends Comparable<T>> Codon<T> number(String name, Function<String, T> parser, Function<AtLeast, T> atLeastExtractor, Function<AtMost, T> atMostExtractor) {
-		return Codon.ofToString((sourceField, value) -> {
-			T x;
-			try {
-				x = parser.apply(value);
-			} catch (RuntimeException e) {
-				throw new ConfigParseException("Cannot parse " + value + " as an " + name, e);
-			}
-			
-			AtLeast leastAnnotation = sourceField.getAnnotation(AtLeast.class);
-			if(leastAnnotation != null) {
-				T mustBeAtLeast = atLeastExtractor.apply(leastAnnotation);
-				if(x.compareTo(mustBeAtLeast) < 0) {
-					throw new ConfigParseException("Value " + x + " is not at least " + mustBeAtLeast);
-				}
-			}
-			
-			AtMost mostAnnotation = sourceField.getAnnotation(AtMost.class);
-			if(mostAnnotation != null) {
-				T mustBeAtMost = atMostExtractor.apply(mostAnnotation);
-				if(x.compareTo(mustBeAtMost) > 0) {
-					throw new ConfigParseException("Value " + x + " is not at most " + mustBeAtMost);
-				}
-			}
-			
-			return x;
-		});
+		return new CompositeCodons.NumberCodon<>(name, parser, atLeastExtractor, atMostExtractor);
 	}
 }
@@ -2,8 +2,12 @@ package agency.highlysuspect.libs.nacl.v1.types;
 
 import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
 import agency.highlysuspect.libs.nacl.v1.annotation.Use;
+import it.unimi.dsi.fastutil.doubles.*;
+import it.unimi.dsi.fastutil.ints.*;
+import it.unimi.dsi.fastutil.longs.*;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.registry.Registry;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 
 import java.lang.reflect.Field;
@@ -11,25 +15,182 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.WildcardType;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Figures out which codon to use for a config field, going by its type or its @Use annotation.
+ * 
+ * Lookups are stacked. Each one only stores the codons registered on it, and asks its parent about everything else.
+ * At the bottom is BUILTIN, which knows about the built-in codons and can't be registered into,
+ * so making a new lookup (every ConfigReader makes one) costs a couple of empty maps instead of copying all the built-ins again.
+ * Give several readers the same parent to share codons between them.
+ * 
+ * Registering a codon copies this lookup's own (usually small) map and swaps the copy in, so looking codons up never takes a lock.
+ */
 public class CodonTypeLookup {
-	public final Map<Class<?>, Codon<?>> classyCodons = new HashMap<>();
-	public final Map<String, Codon<?>> namedCodons = new HashMap<>();
-	public static final Map<Type, Registry<?>> registryTypes = new HashMap<>();
+	/**
+	 * A lookup that's a child of BUILTIN.
+	 */
+	public CodonTypeLookup() {
+		this(BUILTIN);
+	}
+	
+	/**
+	 * A lookup that knows everything the parent does (including things registered on it later), plus whatever's registered on this one.
+	 */
+	public CodonTypeLookup(CodonTypeLookup parent) {
+		this(parent, Map.of(), false);
+	}
+	
+	private CodonTypeLookup(@Nullable CodonTypeLookup parent, Map<Class<?>, Codon<?>> classyCodons, boolean frozen) {
+		this.parent = parent;
+		this.classyCodons = classyCodons;
+		this.frozen = frozen;
+		this.typeCache = new TypeCache(generation(), new ConcurrentHashMap<>());
+	}
+	
+	/**
+	 * The built-in codons, shared by every lookup. Registering codons on it throws UnsupportedOperationException.
+	 */
+	public static final CodonTypeLookup BUILTIN = new CodonTypeLookup(null, builtinClassyCodons(), true);
+	
+	public final @Nullable CodonTypeLookup parent;
+	private final boolean frozen;
+	
+	/**
+	 * Codons registered on this lookup, not counting the parent's. Never modified, only replaced wholesale.
+	 */
+	private volatile Map<Class<?>, Codon<?>> classyCodons;
+	private volatile Map<String, Codon<?>> namedCodons = Map.of();
+	
+	/**
+	 * Results of findType, so the same Codon instance gets handed out for the same type every time,
+	 * instead of building a new tower of listOf/setOf/dimap closures on every call.
+	 * 
+	 * Tagged with the generation it was made for, and swapped out for a fresh one when that's out of date.
+	 * Anything still computing against the old map only ever writes into the old map, so stale codons can't sneak into the new one.
+	 */
+	private volatile TypeCache typeCache;
+	private record TypeCache(int generation, Map<Type, Codon<?>> codons) {}
+	
+	/**
+	 * Bumped every time a codon is registered on this lookup.
+	 */
+	private volatile int ownGeneration = 0;
+	
+	private volatile boolean preferRegistryIdCollections = false;
+	
+	public synchronized void registerNamedCodon(String name, Codon<?> codon) {
+		checkNotFrozen();
+		Map<String, Codon<?>> copy = new HashMap<>(namedCodons);
+		copy.put(name, codon);
+		namedCodons = Map.copyOf(copy);
+		ownGeneration++;
+	}
+	
+	public synchronized void registerClassyCodon(Class<?> classs, Codon<?> codon) {
+		checkNotFrozen();
+		Map<Class<?>, Codon<?>> copy = new HashMap<>(classyCodons);
+		copy.put(classs, codon);
+		classyCodons = Map.copyOf(copy);
+		ownGeneration++;
+	}
+	
+	private void checkNotFrozen() {
+		if(frozen) throw new UnsupportedOperationException("CodonTypeLookup.BUILTIN can't be changed, make a new CodonTypeLookup and change that instead");
+	}
+	
+	/**
+	 * @return The classy codon for this class, from this lookup or the nearest parent that has one, or null if there isn't one.
+	 */
+	public @Nullable Codon<?> classyCodon(Class<?> classs) {
+		for(CodonTypeLookup lookup = this; lookup != null; lookup = lookup.parent) {
+			Codon<?> codon = lookup.classyCodons.get(classs);
+			if(codon != null) return codon;
+		}
+		return null;
+	}
+	
+	/**
+	 * @return The codon registered under this name, from this lookup or the nearest parent that has one, or null if there isn't one.
+	 */
+	public @Nullable Codon<?> namedCodon(String name) {
+		for(CodonTypeLookup lookup = this; lookup != null; lookup = lookup.parent) {
+			Codon<?> codon = lookup.namedCodons.get(name);
+			if(codon != null) return codon;
+		}
+		return null;
+	}
+	
+	/**
+	 * @return The classy codons registered on this lookup itself, not its parents. Unmodifiable; use registerClassyCodon.
+	 */
+	public Map<Class<?>, Codon<?>> ownClassyCodons() {
+		return classyCodons;
+	}
+	
+	/**
+	 * @return The named codons registered on this lookup itself, not its parents. Unmodifiable; use registerNamedCodon.
+	 */
+	public Map<String, Codon<?>> ownNamedCodons() {
+		return namedCodons;
+	}
+	
+	/**
+	 * These used to be public mutable fields. Now they're read-only; register codons with registerClassyCodon instead.
+	 * @deprecated Use ownClassyCodons, or classyCodon to look through the parents too.
+	 */
+	@Deprecated
+	public Map<Class<?>, Codon<?>> classyCodons() {
+		return ownClassyCodons();
+	}
+	
+	/**
+	 * @deprecated Use ownNamedCodons, or namedCodon to look through the parents too.
+	 */
+	@Deprecated
+	public Map<String, Codon<?>> namedCodons() {
+		return ownNamedCodons();
+	}
+	
+	/**
+	 * If true, fields of type Set&lt;T&gt; and Map&lt;T, V&gt; get a RegistryIdSet or RegistryIdMap when T is in a registry,
+	 * instead of a HashSet (or no codon at all, for maps). Fields declared as RegistryIdSet or RegistryIdMap always get one.
+	 * Only values parsed from the config file are affected, so start the field off as a RegistryIdSet too if it should always be one.
+	 * This isn't inherited from the parent.
+	 */
+	public synchronized void setPreferRegistryIdCollections(boolean preferRegistryIdCollections) {
+		checkNotFrozen();
+		this.preferRegistryIdCollections = preferRegistryIdCollections;
+		ownGeneration++;
+	}
+	
+	public boolean preferRegistryIdCollections() {
+		return preferRegistryIdCollections;
+	}
 	
-	public void registerNamedCodon(String name, Codon<?> codon) {
-		namedCodons.put(name, codon);
+	/**
+	 * Throw away all memoized codons, in this lookup and its children.
+	 */
+	public synchronized void invalidate() {
+		ownGeneration++;
 	}
 	
-	public void registerClassyCodon(Class<?> classs, Codon<?> codon) {
-		classyCodons.put(classs, codon);
+	/**
+	 * Changes whenever a codon is registered on this lookup or any of its parents,
+	 * so things that have looked up codons (like ConfigSchema) can tell when they're stale.
+	 */
+	public int generation() {
+		int generation = 0;
+		for(CodonTypeLookup lookup = this; lookup != null; lookup = lookup.parent) generation += lookup.ownGeneration;
+		return generation;
 	}
 	
 	@SuppressWarnings("unchecked")
 	public <T> Codon<T> find(Field field) {
 		Use use = field.getAnnotation(Use.class);
 		if(use != null) {
-			Codon<T> codon = (Codon<T>) namedCodons.get(use.value());
+			Codon<T> codon = (Codon<T>) namedCodon(use.value());
 			if(codon == null) throw new ConfigParseException("No codon named " + use.value());
 			else return codon;
 		}
@@ -39,18 +200,47 @@ public class CodonTypeLookup {
 	
 	@SuppressWarnings("unchecked")
 	public <T> Codon<T> findType(Type type) {
+		//Nothing here that'd make the answer any different from the parent's, so use its memoized codons
+		//(this is the common case, readers that don't register any classy codons of their own)
+		if(parent != null && classyCodons.isEmpty() && preferRegistryIdCollections == parent.preferRegistryIdCollections && getClass() == parent.getClass()) {
+			return parent.findType(type);
+		}
+		
+		//Read the generation before anything else, so a cache made for it can't contain codons from before it
+		int generation = generation();
+		TypeCache cache = typeCache;
+		if(cache.generation != generation) {
+			cache = new TypeCache(generation, new ConcurrentHashMap<>());
+			typeCache = cache;
+		}
+		
+		Codon<T> codon = (Codon<T>) cache.codons.get(type);
+		if(codon == null) {
+			//Not computeIfAbsent, findTypeUncached recurses into findType for the type arguments
+			codon = findTypeUncached(type);
+			Codon<T> race = (Codon<T>) cache.codons.putIfAbsent(type, codon);
+			if(race != null) codon = race;
+		}
+		
+		return codon;
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected <T> Codon<T> findTypeUncached(Type type) {
 		//Simple types
 		if(type instanceof Class<?> classs) {
-			if(classyCodons.containsKey(type)) {
-				return (Codon<T>) classyCodons.get(type);
+			Codon<?> classy = classyCodon(classs);
+			if(classy != null) {
+				return (Codon<T>) classy;
 			}
 			
-			if(registryTypes.containsKey(type)) {
-				return (Codon<T>) Codon.registryEntry(registryTypes.get(type));
+			Registry<?> registry = registryFor(type);
+			if(registry != null) {
+				return (Codon<T>) Codon.registryEntry(registry);
 			}
 			
 			//Also arrays
-			//TODO: something in Codon#arrayOf blows up on primitive arrays (int[], etc). What to do about that
+			//(Codon#arrayOf can't make primitive arrays, those are classy codons from PrimitiveCollectionCodons instead)
 			if(classs.isArray()) {
 				Class<?> componentType = classs.getComponentType();
 				return (Codon<T>) findType(componentType).arrayOf(componentType);
@@ -59,6 +249,18 @@ public class CodonTypeLookup {
 		
 		//Collections / "type functions"
 		if(type instanceof ParameterizedType param && param.getRawType() instanceof Class<?> outer) {
+			//Collections of registry entries that can be backed by raw IDs
+			if(outer == RegistryIdSet.class || outer == RegistryIdMap.class || (preferRegistryIdCollections && (outer == Set.class || outer == Map.class))) {
+				Type keyType = param.getActualTypeArguments()[0];
+				Registry<?> registry = registryFor(keyType);
+				if(registry != null) {
+					if(outer == RegistryIdSet.class || outer == Set.class) return (Codon<T>) Codon.registryIdSet(registry);
+					else return (Codon<T>) Codon.registryIdMap(registry, findType(param.getActualTypeArguments()[1]));
+				} else if(outer == RegistryIdSet.class || outer == RegistryIdMap.class) {
+					throw new ConfigParseException(outer.getSimpleName() + " needs a type that's in a registry, and " + keyType.getTypeName() + " isn't");
+				}
+			}
+			
 			Codon<?> innerCodon = findType(param.getActualTypeArguments()[0]);
 			if(innerCodon != null) {
 				if(List.class.isAssignableFrom(outer)) {
@@ -72,36 +274,121 @@ public class CodonTypeLookup {
 				if(Optional.class.isAssignableFrom(outer)) {
 					return (Codon<T>) innerCodon.optionalOf();
 				}
+				
+				if(outer == Lazy.class) {
+					return (Codon<T>) innerCodon.lazyOf();
+				}
 			}
 		}
 		
 		throw new ConfigParseException("Cannot find codon for type " + type.getTypeName());
 	}
 	
-	{
-		registerClassyCodon(String.class, Codon.STRING);
-		registerClassyCodon(Byte.TYPE, Codon.BYTE);
-		registerClassyCodon(Short.TYPE, Codon.SHORT);
-		registerClassyCodon(Integer.TYPE, Codon.INTEGER);
-		registerClassyCodon(Long.TYPE, Codon.LONG);
-		registerClassyCodon(Float.TYPE, Codon.FLOAT);
-		registerClassyCodon(Double.TYPE, Codon.DOUBLE);
-		registerClassyCodon(Boolean.TYPE, Codon.BOOLEAN);
-		registerClassyCodon(Byte.class, Codon.BYTE);
-		registerClassyCodon(Short.class, Codon.SHORT);
-		registerClassyCodon(Integer.class, Codon.INTEGER);
-		registerClassyCodon(Long.class, Codon.LONG);
-		registerClassyCodon(Float.class, Codon.FLOAT);
-		registerClassyCodon(Double.class, Codon.DOUBLE);
-		registerClassyCodon(Boolean.class, Codon.BOOLEAN);
-		registerClassyCodon(Identifier.class, Codon.IDENTIFIER);
-	}
-	
-	static {
+	private static Map<Class<?>, Codon<?>> builtinClassyCodons() {
+		Map<Class<?>, Codon<?>> codons = new HashMap<>();
+		codons.put(String.class, Codon.STRING);
+		codons.put(Byte.TYPE, Codon.BYTE);
+		codons.put(Short.TYPE, Codon.SHORT);
+		codons.put(Integer.TYPE, Codon.INTEGER);
+		codons.put(Long.TYPE, Codon.LONG);
+		codons.put(Float.TYPE, Codon.FLOAT);
+		codons.put(Double.TYPE, Codon.DOUBLE);
+		codons.put(Boolean.TYPE, Codon.BOOLEAN);
+		codons.put(Byte.class, Codon.BYTE);
+		codons.put(Short.class, Codon.SHORT);
+		codons.put(Integer.class, Codon.INTEGER);
+		codons.put(Long.class, Codon.LONG);
+		codons.put(Float.class, Codon.FLOAT);
+		codons.put(Double.class, Codon.DOUBLE);
+		codons.put(Boolean.class, Codon.BOOLEAN);
+		codons.put(Identifier.class, Codon.IDENTIFIER);
+		
+		codons.put(boolean[].class, PrimitiveCollectionCodons.BOOLEAN_ARRAY);
+		codons.put(byte[].class, PrimitiveCollectionCodons.BYTE_ARRAY);
+		codons.put(short[].class, PrimitiveCollectionCodons.SHORT_ARRAY);
+		codons.put(int[].class, PrimitiveCollectionCodons.INT_ARRAY);
+		codons.put(long[].class, PrimitiveCollectionCodons.LONG_ARRAY);
+		codons.put(float[].class, PrimitiveCollectionCodons.FLOAT_ARRAY);
+		codons.put(double[].class, PrimitiveCollectionCodons.DOUBLE_ARRAY);
+		
+		codons.put(IntList.class, PrimitiveCollectionCodons.INT_LIST);
+		codons.put(IntArrayList.class, PrimitiveCollectionCodons.INT_LIST);
+		codons.put(IntSet.class, PrimitiveCollectionCodons.INT_SET);
+		codons.put(IntOpenHashSet.class, PrimitiveCollectionCodons.INT_SET);
+		codons.put(LongList.class, PrimitiveCollectionCodons.LONG_LIST);
+		codons.put(LongArrayList.class, PrimitiveCollectionCodons.LONG_LIST);
+		codons.put(LongSet.class, PrimitiveCollectionCodons.LONG_SET);
+		codons.put(LongOpenHashSet.class, PrimitiveCollectionCodons.LONG_SET);
+		codons.put(DoubleList.class, PrimitiveCollectionCodons.DOUBLE_LIST);
+		codons.put(DoubleArrayList.class, PrimitiveCollectionCodons.DOUBLE_LIST);
+		codons.put(DoubleSet.class, PrimitiveCollectionCodons.DOUBLE_SET);
+		codons.put(DoubleOpenHashSet.class, PrimitiveCollectionCodons.DOUBLE_SET);
+		
+		return Map.copyOf(codons);
+	}
+	
+	/**
+	 * Which Registry holds things of which type. Built the first time it's needed (so, the first time a config field
+	 * has a type that doesn't have a classy codon), and never modified after that, only replaced wholesale.
+	 */
+	private static volatile Map<Type, Registry<?>> registryIndex;
+	private static final Map<Type, Registry<?>> extraRegistries = new HashMap<>();
+	
+	/**
+	 * @return The registry that holds things of this type, or null if there isn't one.
+	 */
+	public static @Nullable Registry<?> registryFor(Type type) {
+		return registryIndex().get(type);
+	}
+	
+	/**
+	 * A read-only view of the registry index. This used to be a public mutable map; putting things in it now throws.
+	 * @deprecated Use registryFor to read it, and registerRegistryType to add to it.
+	 */
+	@Deprecated
+	public static final Map<Type, Registry<?>> registryTypes = new AbstractMap<>() {
+		@Override
+		public Registry<?> get(Object key) {
+			return registryIndex().get(key);
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return registryIndex().containsKey(key);
+		}
+		
+		@Override
+		public Set<Entry<Type, Registry<?>>> entrySet() {
+			return registryIndex().entrySet();
+		}
+	};
+	
+	private static Map<Type, Registry<?>> registryIndex() {
+		Map<Type, Registry<?>> index = registryIndex;
+		return index == null ? buildRegistryIndex() : index;
+	}
+	
+	/**
+	 * Teach nacl about a registry that isn't a static field of Registry.class, so fields of this type get a registryEntry codon.
+	 * (Registries already in CodonTypeLookup#find's memoized codons won't notice, so do this before reading config files.)
+	 */
+	public static synchronized void registerRegistryType(Type type, Registry<?> registry) {
+		extraRegistries.put(type, registry);
+		if(registryIndex != null) {
+			Map<Type, Registry<?>> index = new HashMap<>(registryIndex);
+			index.put(type, registry);
+			registryIndex = Map.copyOf(index);
+		}
+	}
+	
+	private static synchronized Map<Type, Registry<?>> buildRegistryIndex() {
+		if(registryIndex != null) return registryIndex; //Someone else got here first
+		
+		Map<Type, Registry<?>> index = new HashMap<>();
 		try {
 			//1. Iterate over the static fields in Registry.class.
 			//2. Pluck out all the fields of type "Registry<Something>" or "Registry<? extends Something>"
-			//3. In registeredTypes, record that the type Something is recorded in that registry
+			//3. In the index, record that the type Something is recorded in that registry
 			// (I can use this information to serialize these types, by looking their ID up in the Registry.)
 			//
 			//note 1: I'd love to iterate over the members of Registry.ROOT, but I don't think recovering the registered type is possible.
@@ -110,19 +397,26 @@ public class CodonTypeLookup {
 			//note 2: Registry.CUSTOM_STAT is a Registry<Identifier>, so, that's kinda odd.
 			for(Field field : Registry.class.getDeclaredFields()) {
 				if((field.getModifiers() & Opcodes.ACC_STATIC) != 0 && Registry.class.isAssignableFrom(field.getType()) && field.getGenericType() instanceof ParameterizedType param) {
+					Registry<?> registry = (Registry<?>) field.get(null);
+					if(registry == null) continue;
+					
 					Type arg = param.getActualTypeArguments()[0];
 					if(arg instanceof WildcardType wildcard && wildcard.getUpperBounds()[0] instanceof ParameterizedType heck) {
 						//Registry<? extends Something>
 						//(pracitcally speaking this is only the Registry<? extends Registry<?>> registry)
-						registryTypes.put(heck.getRawType(), (Registry<?>) field.get(null));
+						index.put(heck.getRawType(), registry);
 					} else if(arg instanceof Class<?> classs) {
 						//Registry<Something>
-						registryTypes.put(classs, (Registry<?>) field.get(null));
+						index.put(classs, registry);
 					}
 				}
 			}
 		} catch (ReflectiveOperationException e) {
 			throw new RuntimeException("Problem reflecting Registry.class", e);
 		}
+		
+		index.putAll(extraRegistries);
+		registryIndex = Map.copyOf(index);
+		return registryIndex;
 	}
 }
@@ -0,0 +1,306 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
+import agency.highlysuspect.libs.nacl.v1.annotation.AtLeast;
+import agency.highlysuspect.libs.nacl.v1.annotation.AtMost;
+import net.minecraft.util.registry.Registry;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * The codons behind Codon#setOf, Codon#listOf, Codon#optionalOf, Codon#dimap, Codon#number, and Codon#registryIdMap.
+ * They're classes instead of Codon.of lambdas so they can pass things like writeBinary through to the inner codon,
+ * and they parse and write spans of the file directly, so a big list doesn't turn into a String per element.
+ */
+final class CompositeCodons {
+	private CompositeCodons() {}
+	
+	/**
+	 * Comma-separated collection. Splits the same way String#split(",") does (trailing empty elements are dropped,
+	 * but the empty string is one empty element), then trims each element.
+	 */
+	static final class CollectionCodon<T, C extends Collection<T>> extends SpanCodon<C> {
+		CollectionCodon(Codon<T> element, IntFunction<C> factory) {
+			this.element = element;
+			this.factory = factory;
+		}
+		
+		final Codon<T> element;
+		final IntFunction<C> factory;
+		
+		@Override
+		public Codon<C> bind(Field field) {
+			Codon<T> boundElement = element.bind(field);
+			return boundElement == element ? this : new CollectionCodon<>(boundElement, factory);
+		}
+		
+		@Override
+		public void write(Field targetField, C value, StringBuilder out) {
+			boolean first = true;
+			for(T e : value) {
+				if(!first) out.append(", ");
+				element.write(targetField, e, out);
+				first = false;
+			}
+		}
+		
+		@Override
+		public C parse(Field sourceField, CharSequence text, int start, int end) {
+			//Work out where the last non-empty element ends, because String#split drops trailing empty strings
+			int lastEnd = end;
+			while(lastEnd > start && text.charAt(lastEnd - 1) == ',') lastEnd--;
+			
+			C result = factory.apply(8);
+			if(lastEnd == start && end != start) return result; //Nothing but commas
+			
+			while(true) {
+				int comma = Spans.indexOf(text, ',', start, lastEnd);
+				int elementEnd = comma == -1 ? lastEnd : comma;
+				result.add(element.parse(sourceField, text, Spans.trimStart(text, start, elementEnd), Spans.trimEnd(text, start, elementEnd)));
+				
+				if(comma == -1) return result;
+				start = comma + 1;
+			}
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, C value, BinaryOutput out) {
+			out.writeVarInt(value.size());
+			for(T e : value) element.writeBinary(targetField, e, out);
+		}
+		
+		@Override
+		public C readBinary(Field sourceField, BinaryInput in) {
+			int size = in.readVarInt();
+			C result = factory.apply(size);
+			for(int i = 0; i < size; i++) result.add(element.readBinary(sourceField, in));
+			return result;
+		}
+	}
+	
+	/**
+	 * Empty strings are Optional.empty(), nonempty strings delegate to the original codon.
+	 */
+	static final class OptionalCodon<T> extends SpanCodon<Optional<T>> {
+		OptionalCodon(Codon<T> inner) {
+			this.inner = inner;
+		}
+		
+		final Codon<T> inner;
+		
+		@Override
+		public Codon<Optional<T>> bind(Field field) {
+			Codon<T> boundInner = inner.bind(field);
+			return boundInner == inner ? this : new OptionalCodon<>(boundInner);
+		}
+		
+		@Override
+		public void write(Field targetField, Optional<T> value, StringBuilder out) {
+			if(value.isPresent()) inner.write(targetField, value.get(), out);
+		}
+		
+		@Override
+		public Optional<T> parse(Field sourceField, CharSequence text, int start, int end) {
+			return start == end ? Optional.empty() : Optional.of(inner.parse(sourceField, text, start, end));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Optional<T> value, BinaryOutput out) {
+			out.writeBoolean(value.isPresent());
+			if(value.isPresent()) inner.writeBinary(targetField, value.get(), out);
+		}
+		
+		@Override
+		public Optional<T> readBinary(Field sourceField, BinaryInput in) {
+			return in.readBoolean() ? Optional.of(inner.readBinary(sourceField, in)) : Optional.empty();
+		}
+	}
+	
+	static final class DimapCodon<T, U> extends SpanCodon<U> {
+		DimapCodon(Codon<T> inner, Function<T, U> into, Function<U, T> from) {
+			this.inner = inner;
+			this.into = into;
+			this.from = from;
+		}
+		
+		final Codon<T> inner;
+		final Function<T, U> into;
+		final Function<U, T> from;
+		
+		@Override
+		public Codon<U> bind(Field field) {
+			Codon<T> boundInner = inner.bind(field);
+			return boundInner == inner ? this : new DimapCodon<>(boundInner, into, from);
+		}
+		
+		@Override
+		public void write(Field targetField, U value, StringBuilder out) {
+			inner.write(targetField, from.apply(value), out);
+		}
+		
+		@Override
+		public U parse(Field sourceField, CharSequence text, int start, int end) {
+			return into.apply(inner.parse(sourceField, text, start, end));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, U value, BinaryOutput out) {
+			inner.writeBinary(targetField, from.apply(value), out);
+		}
+		
+		@Override
+		public U readBinary(Field sourceField, BinaryInput in) {
+			return into.apply(inner.readBinary(sourceField, in));
+		}
+	}
+	
+	/**
+	 * Comma-separated key=value pairs, with keys from a registry. Unlike CollectionCodon, the empty string is an empty map.
+	 * Parses to a RegistryIdMap, but writes any Map, since the field's default value might be a plain old HashMap.
+	 */
+	static final class RegistryIdMapCodon<K, V> extends SpanCodon<Map<K, V>> {
+		RegistryIdMapCodon(Registry<K> registry, Codon<V> value) {
+			this.registry = registry;
+			this.key = Codon.registryEntry(registry);
+			this.value = value;
+		}
+		
+		final Registry<K> registry;
+		final Codon<K> key;
+		final Codon<V> value;
+		
+		@Override
+		public Codon<Map<K, V>> bind(Field field) {
+			Codon<V> boundValue = value.bind(field);
+			return boundValue == value ? this : new RegistryIdMapCodon<>(registry, boundValue);
+		}
+		
+		@Override
+		public void write(Field targetField, Map<K, V> map, StringBuilder out) {
+			boolean first = true;
+			for(Map.Entry<K, V> e : map.entrySet()) {
+				if(!first) out.append(", ");
+				key.write(targetField, e.getKey(), out);
+				out.append('=');
+				value.write(targetField, e.getValue(), out);
+				first = false;
+			}
+		}
+		
+		@Override
+		public RegistryIdMap<K, V> parse(Field sourceField, CharSequence text, int start, int end) {
+			RegistryIdMap<K, V> result = new RegistryIdMap<>(registry);
+			if(start == end) return result;
+			
+			while(true) {
+				int comma = Spans.indexOf(text, ',', start, end);
+				int pairEnd = comma == -1 ? end : comma;
+				int eq = Spans.indexOf(text, '=', start, pairEnd);
+				if(eq == -1) throw new ConfigParseException("Expected key=value, not " + Spans.toString(text, start, pairEnd).trim());
+				
+				K k = key.parse(sourceField, text, Spans.trimStart(text, start, eq), Spans.trimEnd(text, start, eq));
+				V v = value.parse(sourceField, text, Spans.trimStart(text, eq + 1, pairEnd), Spans.trimEnd(text, eq + 1, pairEnd));
+				result.put(k, v);
+				
+				if(comma == -1) return result;
+				start = comma + 1;
+			}
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Map<K, V> map, BinaryOutput out) {
+			out.writeVarInt(map.size());
+			for(Map.Entry<K, V> e : map.entrySet()) {
+				key.writeBinary(targetField, e.getKey(), out);
+				value.writeBinary(targetField, e.getValue(), out);
+			}
+		}
+		
+		@Override
+		public RegistryIdMap<K, V> readBinary(Field sourceField, BinaryInput in) {
+			int size = in.readVarInt();
+			RegistryIdMap<K, V> result = new RegistryIdMap<>(registry);
+			for(int i = 0; i < size; i++) result.put(key.readBinary(sourceField, in), value.readBinary(sourceField, in));
+			return result;
+		}
+	}
+	
+	/**
+	 * The codon behind Codon#number.
+	 */
+	static final class NumberCodon<T extends Comparable<T>> implements Codon<T> {
+		NumberCodon(String name, Function<String, T> parser, Function<AtLeast, T> atLeastExtractor, Function<AtMost, T> atMostExtractor) {
+			this(name, parser, atLeastExtractor, atMostExtractor, false, null, null);
+		}
+		
+		private NumberCodon(String name, Function<String, T> parser, Function<AtLeast, T> atLeastExtractor, Function<AtMost, T> atMostExtractor, boolean bound, @Nullable T atLeast, @Nullable T atMost) {
+			this.name = name;
+			this.parser = parser;
+			this.atLeastExtractor = atLeastExtractor;
+			this.atMostExtractor = atMostExtractor;
+			this.bound = bound;
+			this.atLeast = atLeast;
+			this.atMost = atMost;
+		}
+		
+		final String name;
+		final Function<String, T> parser;
+		final Function<AtLeast, T> atLeastExtractor;
+		final Function<AtMost, T> atMostExtractor;
+		
+		/**
+		 * If false, this codon isn't bound to a field, so the bounds are read off whichever field it's given.
+		 */
+		final boolean bound;
+		final @Nullable T atLeast;
+		final @Nullable T atMost;
+		
+		@Override
+		public Codon<T> bind(Field field) {
+			return new NumberCodon<>(name, parser, atLeastExtractor, atMostExtractor, true, atLeast(field), atMost(field));
+		}
+		
+		private @Nullable T atLeast(Field field) {
+			AtLeast annotation = field.getAnnotation(AtLeast.class);
+			return annotation == null ? null : atLeastExtractor.apply(annotation);
+		}
+		
+		private @Nullable T atMost(Field field) {
+			AtMost annotation = field.getAnnotation(AtMost.class);
+			return annotation == null ? null : atMostExtractor.apply(annotation);
+		}
+		
+		@Override
+		public String write(Field targetField, T value) {
+			return value.toString();
+		}
+		
+		@Override
+		public T parse(Field sourceField, String value) {
+			T x;
+			try {
+				x = parser.apply(value);
+			} catch (RuntimeException e) {
+				throw new ConfigParseException("Cannot parse " + value + " as an " + name, e);
+			}
+			
+			T mustBeAtLeast = bound ? atLeast : atLeast(sourceField);
+			if(mustBeAtLeast != null && x.compareTo(mustBeAtLeast) < 0) {
+				throw new ConfigParseException("Value " + x + " is not at least " + mustBeAtLeast);
+			}
+			
+			T mustBeAtMost = bound ? atMost : atMost(sourceField);
+			if(mustBeAtMost != null && x.compareTo(mustBeAtMost) > 0) {
+				throw new ConfigParseException("Value " + x + " is not at most " + mustBeAtMost);
+			}
+			
+			return x;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A config value that isn't parsed until it's asked for.
+ * 
+ * Declare a field as Lazy&lt;Whatever&gt; (with a default of Lazy.of(something)) and the config file only remembers the text
+ * of the value when it's read. The codon for Whatever runs the first time get() is called, and the result is kept.
+ * Good for registry entries from mods that register things late, and for big collections that might not get used.
+ * 
+ * If parsing fails, get() throws a ConfigParseException pointing at the line in the config file, and tries again next time,
+ * so asking too early (before a registry is filled in, say) doesn't ruin it for later.
+ * Saving the config writes the original text back out without parsing it.
+ */
+public final class Lazy<T> implements Supplier<T> {
+	private Lazy(@Nullable Codon<T> codon, @Nullable Field field, @Nullable String text, @Nullable Path file, int line, Object value) {
+		this.codon = codon;
+		this.field = field;
+		this.text = text;
+		this.file = file;
+		this.line = line;
+		this.value = value;
+	}
+	
+	private static final Object UNRESOLVED = new Object();
+	
+	private final @Nullable Codon<T> codon;
+	private final @Nullable Field field;
+	private final @Nullable String text;
+	private final @Nullable Path file;
+	private final int line;
+	
+	private volatile Object value;
+	
+	/**
+	 * An already-parsed value, for defaults.
+	 */
+	public static <T> Lazy<T> of(T value) {
+		return new Lazy<>(null, null, null, null, -1, value);
+	}
+	
+	/**
+	 * A value that'll be parsed out of the text with the codon when it's first needed.
+	 * @param file The config file it came from, or null if it didn't come from a file.
+	 * @param line The line it's on, or -1 if it didn't come from a file.
+	 */
+	public static <T> Lazy<T> deferred(Codon<T> codon, Field field, String text, @Nullable Path file, int line) {
+		return new Lazy<>(codon, field, text, file, line, UNRESOLVED);
+	}
+	
+	/**
+	 * Parse the value, if that hasn't happened yet.
+	 * @throws ConfigParseException if the value doesn't parse.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get() {
+		Object value = this.value;
+		if(value == UNRESOLVED) {
+			synchronized(this) {
+				value = this.value;
+				if(value == UNRESOLVED) {
+					value = resolve();
+					this.value = value;
+				}
+			}
+		}
+		return (T) value;
+	}
+	
+	private T resolve() {
+		//Only deferred lazies are ever unresolved, so codon, field, and text are all there
+		try {
+			return codon.parse(field, text, 0, text.length());
+		} catch (RuntimeException e) {
+			String where = line == -1 ? "" : " on line " + line + (file == null ? "" : " in config file " + file);
+			throw new ConfigParseException("Problem parsing " + field.getName() + where + ": " + e.getMessage(), e);
+		}
+	}
+	
+	public boolean isResolved() {
+		return value != UNRESOLVED;
+	}
+	
+	/**
+	 * @return The text this will be parsed from, or null if it was made with Lazy.of.
+	 */
+	public @Nullable String text() {
+		return text;
+	}
+	
+	/**
+	 * Never parses anything, so lazies can go in HashSets and configs can be compared without parsing every value.
+	 * Lazies read from a config file are equal if their text is, and lazies made with Lazy.of are equal if their values are.
+	 * One of each is never equal, even if the text would parse to the same value; compare get() if that matters.
+	 * (Going by the text even once it's been parsed keeps hashCode the same before and after.)
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if(this == o) return true;
+		if(!(o instanceof Lazy<?> other)) return false;
+		if(text != null || other.text != null) return Objects.equals(text, other.text);
+		return Objects.deepEquals(value, other.value);
+	}
+	
+	@Override
+	public int hashCode() {
+		return text != null ? text.hashCode() : Arrays.deepHashCode(new Object[] { value });
+	}
+	
+	@Override
+	public String toString() {
+		return isResolved() ? String.valueOf(value) : "Lazy[" + text + "]";
+	}
+}
@@ -0,0 +1,55 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+
+/**
+ * The codon for Lazy fields. Parsing only remembers the text; the inner codon runs when Lazy#get is called.
+ * Writing a lazy that hasn't been parsed yet writes its text back out as-is, so saving a config doesn't parse anything either.
+ * 
+ * ConfigReader calls the parse overload that takes a file and line number, so errors can point at the right spot later.
+ */
+public final class LazyCodon<T> extends SpanCodon<Lazy<T>> {
+	public LazyCodon(Codon<T> inner) {
+		this.inner = inner;
+	}
+	
+	public final Codon<T> inner;
+	
+	@Override
+	public Codon<Lazy<T>> bind(Field field) {
+		Codon<T> boundInner = inner.bind(field);
+		return boundInner == inner ? this : new LazyCodon<>(boundInner);
+	}
+	
+	@Override
+	public Lazy<T> parse(Field sourceField, CharSequence text, int start, int end) {
+		return parse(sourceField, text, start, end, null, -1);
+	}
+	
+	/**
+	 * @param file The config file the text is from, for error messages.
+	 * @param line The line the text is on, for error messages.
+	 */
+	public Lazy<T> parse(Field sourceField, CharSequence text, int start, int end, @Nullable Path file, int line) {
+		return Lazy.deferred(inner, sourceField, Spans.toString(text, start, end), file, line);
+	}
+	
+	@Override
+	public void write(Field targetField, Lazy<T> value, StringBuilder out) {
+		if(value.isResolved()) inner.write(targetField, value.get(), out);
+		else out.append(value.text());
+	}
+	
+	@Override
+	public void writeBinary(Field targetField, Lazy<T> value, BinaryOutput out) {
+		out.writeString(write(targetField, value));
+	}
+	
+	@Override
+	public Lazy<T> readBinary(Field sourceField, BinaryInput in) {
+		return parse(sourceField, in.readString());
+	}
+}
@@ -0,0 +1,760 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
+import agency.highlysuspect.libs.nacl.v1.FieldAccessor;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+
+/**
+ * Codons for the primitive types. These have unboxed versions of parse and write,
+ * and use them to move values in and out of config fields without allocating a wrapper object every time.
+ * (Fields of the wrapper types, like Integer, still go through the boxed get and set.)
+ * 
+ * Their binary forms are fixed-width for floats, doubles, bytes, and booleans, and zigzag varints for the other integer types.
+ * Values read back with readBinary aren't checked against @AtLeast and @AtMost again.
+ * 
+ * The numeric codons check @AtLeast and @AtMost with ranges that are worked out once, when the codon is bound to its field
+ * (see Codon#bind and Bounds). Unbound ones, like Codon.INTEGER itself (say, inside someone's own codon), read the bounds
+ * off whichever field they're given on every parse instead, which is slower but works the same.
+ * 
+ * The integer types parse straight out of the file's characters. Float and double still make a String first,
+ * because the JDK can only parse those from a String.
+ * 
+ * Use the constants in Codon (Codon.INTEGER etc) instead of making your own.
+ */
+public final class PrimitiveCodons {
+	private PrimitiveCodons() {}
+	
+	private static int checkRange(int x, int min, int max) {
+		if(x < min || x > max) throw new NumberFormatException("Value out of range. Value:" + x);
+		return x;
+	}
+	
+	/**
+	 * Integer, Boolean etc fields can hold null, which getInt and friends can't return, so those go through the boxed accessor methods.
+	 */
+	private static boolean boxed(@Nullable Field field) {
+		return field != null && !field.getType().isPrimitive();
+	}
+	
+	public static final class BooleanCodon implements Codon<Boolean> {
+		public boolean parseBoolean(Field sourceField, String value) {
+			return parseBoolean(sourceField, value, 0, value.length());
+		}
+		
+		public boolean parseBoolean(Field sourceField, CharSequence text, int start, int end) {
+			if(Spans.equalsIgnoreCase(text, start, end, "true")) return true;
+			else if(Spans.equalsIgnoreCase(text, start, end, "false")) return false;
+			else throw new ConfigParseException("Cannot parse " + Spans.toString(text, start, end) + " as a bool (true / false)");
+		}
+		
+		@Override
+		public Boolean parse(Field sourceField, String value) {
+			return parseBoolean(sourceField, value);
+		}
+		
+		@Override
+		public Boolean parse(Field sourceField, CharSequence text, int start, int end) {
+			return parseBoolean(sourceField, text, start, end);
+		}
+		
+		@Override
+		public String write(Field targetField, Boolean value) {
+			return value.toString();
+		}
+		
+		@Override
+		public void write(Field targetField, Boolean value, StringBuilder out) {
+			out.append(value.booleanValue());
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, value, accessor, configInst); return; }
+			accessor.setBoolean(configInst, parseBoolean(sourceField, value));
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, text, start, end, accessor, configInst); return; }
+			accessor.setBoolean(configInst, parseBoolean(sourceField, text, start, end));
+		}
+		
+		@Override
+		public String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+			if(boxed(targetField)) return Codon.super.writeFrom(targetField, accessor, configInst);
+			return Boolean.toString(accessor.getBoolean(configInst));
+		}
+		
+		@Override
+		public void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+			if(boxed(targetField)) { Codon.super.writeFrom(targetField, accessor, configInst, out); return; }
+			out.append(accessor.getBoolean(configInst));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Boolean value, BinaryOutput out) {
+			out.writeBoolean(value);
+		}
+		
+		@Override
+		public Boolean readBinary(Field sourceField, BinaryInput in) {
+			return in.readBoolean();
+		}
+		
+		@Override
+		public void readBinaryInto(Field sourceField, BinaryInput in, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.readBinaryInto(sourceField, in, accessor, configInst); return; }
+			accessor.setBoolean(configInst, in.readBoolean());
+		}
+		
+		@Override
+		public void writeBinaryFrom(Field targetField, FieldAccessor accessor, Object configInst, BinaryOutput out) {
+			if(boxed(targetField)) { Codon.super.writeBinaryFrom(targetField, accessor, configInst, out); return; }
+			out.writeBoolean(accessor.getBoolean(configInst));
+		}
+	}
+	
+	public static final class ByteCodon implements Codon<Byte> {
+		public ByteCodon() {
+			this.range = null;
+		}
+		
+		private ByteCodon(Bounds.IntRange range) {
+			this.range = range;
+		}
+		
+		/**
+		 * The bounds from the field this codon is bound to, or null if it's not bound to one (then they're read on every parse).
+		 */
+		private final @Nullable Bounds.IntRange range;
+		
+		@Override
+		public ByteCodon bind(Field field) {
+			return new ByteCodon(Bounds.of(field).intRange(Byte.MIN_VALUE, Byte.MAX_VALUE));
+		}
+		
+		private @Nullable Bounds.IntRange range(@Nullable Field sourceField) {
+			if(range != null || sourceField == null) return range;
+			return bind(sourceField).range;
+		}
+		
+		public byte parseByte(Field sourceField, String value) {
+			return parseByte(sourceField, value, 0, value.length());
+		}
+		
+		public byte parseByte(Field sourceField, CharSequence text, int start, int end) {
+			byte x;
+			try {
+				x = (byte) checkRange(Integer.parseInt(text, start, end, 10), Byte.MIN_VALUE, Byte.MAX_VALUE);
+			} catch (RuntimeException e) {
+				throw new ConfigParseException("Cannot parse " + Spans.toString(text, start, end) + " as an byte", e);
+			}
+			
+			Bounds.IntRange range = range(sourceField);
+			return range == null ? x : (byte) range.check(x);
+		}
+		
+		@Override
+		public Byte parse(Field sourceField, String value) {
+			return parseByte(sourceField, value);
+		}
+		
+		@Override
+		public Byte parse(Field sourceField, CharSequence text, int start, int end) {
+			return parseByte(sourceField, text, start, end);
+		}
+		
+		@Override
+		public String write(Field targetField, Byte value) {
+			return value.toString();
+		}
+		
+		@Override
+		public void write(Field targetField, Byte value, StringBuilder out) {
+			out.append(value.byteValue());
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, value, accessor, configInst); return; }
+			accessor.setByte(configInst, parseByte(sourceField, value));
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, text, start, end, accessor, configInst); return; }
+			accessor.setByte(configInst, parseByte(sourceField, text, start, end));
+		}
+		
+		@Override
+		public String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+			if(boxed(targetField)) return Codon.super.writeFrom(targetField, accessor, configInst);
+			return Byte.toString(accessor.getByte(configInst));
+		}
+		
+		@Override
+		public void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+			if(boxed(targetField)) { Codon.super.writeFrom(targetField, accessor, configInst, out); return; }
+			out.append(accessor.getByte(configInst));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Byte value, BinaryOutput out) {
+			out.writeByte(value);
+		}
+		
+		@Override
+		public Byte readBinary(Field sourceField, BinaryInput in) {
+			return in.readByte();
+		}
+		
+		@Override
+		public void readBinaryInto(Field sourceField, BinaryInput in, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.readBinaryInto(sourceField, in, accessor, configInst); return; }
+			accessor.setByte(configInst, in.readByte());
+		}
+		
+		@Override
+		public void writeBinaryFrom(Field targetField, FieldAccessor accessor, Object configInst, BinaryOutput out) {
+			if(boxed(targetField)) { Codon.super.writeBinaryFrom(targetField, accessor, configInst, out); return; }
+			out.writeByte(accessor.getByte(configInst));
+		}
+	}
+	
+	public static final class ShortCodon implements Codon<Short> {
+		public ShortCodon() {
+			this.range = null;
+		}
+		
+		private ShortCodon(Bounds.IntRange range) {
+			this.range = range;
+		}
+		
+		/**
+		 * The bounds from the field this codon is bound to, or null if it's not bound to one (then they're read on every parse).
+		 */
+		private final @Nullable Bounds.IntRange range;
+		
+		@Override
+		public ShortCodon bind(Field field) {
+			return new ShortCodon(Bounds.of(field).intRange(Short.MIN_VALUE, Short.MAX_VALUE));
+		}
+		
+		private @Nullable Bounds.IntRange range(@Nullable Field sourceField) {
+			if(range != null || sourceField == null) return range;
+			return bind(sourceField).range;
+		}
+		
+		public short parseShort(Field sourceField, String value) {
+			return parseShort(sourceField, value, 0, value.length());
+		}
+		
+		public short parseShort(Field sourceField, CharSequence text, int start, int end) {
+			short x;
+			try {
+				x = (short) checkRange(Integer.parseInt(text, start, end, 10), Short.MIN_VALUE, Short.MAX_VALUE);
+			} catch (RuntimeException e) {
+				throw new ConfigParseException("Cannot parse " + Spans.toString(text, start, end) + " as an short", e);
+			}
+			
+			Bounds.IntRange range = range(sourceField);
+			return range == null ? x : (short) range.check(x);
+		}
+		
+		@Override
+		public Short parse(Field sourceField, String value) {
+			return parseShort(sourceField, value);
+		}
+		
+		@Override
+		public Short parse(Field sourceField, CharSequence text, int start, int end) {
+			return parseShort(sourceField, text, start, end);
+		}
+		
+		@Override
+		public String write(Field targetField, Short value) {
+			return value.toString();
+		}
+		
+		@Override
+		public void write(Field targetField, Short value, StringBuilder out) {
+			out.append(value.shortValue());
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, value, accessor, configInst); return; }
+			accessor.setShort(configInst, parseShort(sourceField, value));
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, text, start, end, accessor, configInst); return; }
+			accessor.setShort(configInst, parseShort(sourceField, text, start, end));
+		}
+		
+		@Override
+		public String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+			if(boxed(targetField)) return Codon.super.writeFrom(targetField, accessor, configInst);
+			return Short.toString(accessor.getShort(configInst));
+		}
+		
+		@Override
+		public void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+			if(boxed(targetField)) { Codon.super.writeFrom(targetField, accessor, configInst, out); return; }
+			out.append(accessor.getShort(configInst));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Short value, BinaryOutput out) {
+			out.writeSignedVarInt(value);
+		}
+		
+		@Override
+		public Short readBinary(Field sourceField, BinaryInput in) {
+			return (short) in.readSignedVarInt();
+		}
+		
+		@Override
+		public void readBinaryInto(Field sourceField, BinaryInput in, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.readBinaryInto(sourceField, in, accessor, configInst); return; }
+			accessor.setShort(configInst, (short) in.readSignedVarInt());
+		}
+		
+		@Override
+		public void writeBinaryFrom(Field targetField, FieldAccessor accessor, Object configInst, BinaryOutput out) {
+			if(boxed(targetField)) { Codon.super.writeBinaryFrom(targetField, accessor, configInst, out); return; }
+			out.writeSignedVarInt(accessor.getShort(configInst));
+		}
+	}
+	
+	public static final class IntCodon implements Codon<Integer> {
+		public IntCodon() {
+			this.range = null;
+		}
+		
+		private IntCodon(Bounds.IntRange range) {
+			this.range = range;
+		}
+		
+		/**
+		 * The bounds from the field this codon is bound to, or null if it's not bound to one (then they're read on every parse).
+		 */
+		private final @Nullable Bounds.IntRange range;
+		
+		@Override
+		public IntCodon bind(Field field) {
+			return new IntCodon(Bounds.of(field).intRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		}
+		
+		private @Nullable Bounds.IntRange range(@Nullable Field sourceField) {
+			if(range != null || sourceField == null) return range;
+			return bind(sourceField).range;
+		}
+		
+		public int parseInt(Field sourceField, String value) {
+			return parseInt(sourceField, value, 0, value.length());
+		}
+		
+		public int parseInt(Field sourceField, CharSequence text, int start, int end) {
+			int x;
+			try {
+				x = Integer.parseInt(text, start, end, 10);
+			} catch (RuntimeException e) {
+				throw new ConfigParseException("Cannot parse " + Spans.toString(text, start, end) + " as an integer", e);
+			}
+			
+			Bounds.IntRange range = range(sourceField);
+			return range == null ? x : range.check(x);
+		}
+		
+		@Override
+		public Integer parse(Field sourceField, String value) {
+			return parseInt(sourceField, value);
+		}
+		
+		@Override
+		public Integer parse(Field sourceField, CharSequence text, int start, int end) {
+			return parseInt(sourceField, text, start, end);
+		}
+		
+		@Override
+		public String write(Field targetField, Integer value) {
+			return value.toString();
+		}
+		
+		@Override
+		public void write(Field targetField, Integer value, StringBuilder out) {
+			out.append(value.intValue());
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, value, accessor, configInst); return; }
+			accessor.setInt(configInst, parseInt(sourceField, value));
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, text, start, end, accessor, configInst); return; }
+			accessor.setInt(configInst, parseInt(sourceField, text, start, end));
+		}
+		
+		@Override
+		public String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+			if(boxed(targetField)) return Codon.super.writeFrom(targetField, accessor, configInst);
+			return Integer.toString(accessor.getInt(configInst));
+		}
+		
+		@Override
+		public void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+			if(boxed(targetField)) { Codon.super.writeFrom(targetField, accessor, configInst, out); return; }
+			out.append(accessor.getInt(configInst));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Integer value, BinaryOutput out) {
+			out.writeSignedVarInt(value);
+		}
+		
+		@Override
+		public Integer readBinary(Field sourceField, BinaryInput in) {
+			return in.readSignedVarInt();
+		}
+		
+		@Override
+		public void readBinaryInto(Field sourceField, BinaryInput in, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.readBinaryInto(sourceField, in, accessor, configInst); return; }
+			accessor.setInt(configInst, in.readSignedVarInt());
+		}
+		
+		@Override
+		public void writeBinaryFrom(Field targetField, FieldAccessor accessor, Object configInst, BinaryOutput out) {
+			if(boxed(targetField)) { Codon.super.writeBinaryFrom(targetField, accessor, configInst, out); return; }
+			out.writeSignedVarInt(accessor.getInt(configInst));
+		}
+	}
+	
+	public static final class LongCodon implements Codon<Long> {
+		public LongCodon() {
+			this.range = null;
+		}
+		
+		private LongCodon(Bounds.LongRange range) {
+			this.range = range;
+		}
+		
+		/**
+		 * The bounds from the field this codon is bound to, or null if it's not bound to one (then they're read on every parse).
+		 */
+		private final @Nullable Bounds.LongRange range;
+		
+		@Override
+		public LongCodon bind(Field field) {
+			return new LongCodon(Bounds.of(field).longRange());
+		}
+		
+		private @Nullable Bounds.LongRange range(@Nullable Field sourceField) {
+			if(range != null || sourceField == null) return range;
+			return bind(sourceField).range;
+		}
+		
+		public long parseLong(Field sourceField, String value) {
+			return parseLong(sourceField, value, 0, value.length());
+		}
+		
+		public long parseLong(Field sourceField, CharSequence text, int start, int end) {
+			long x;
+			try {
+				x = Long.parseLong(text, start, end, 10);
+			} catch (RuntimeException e) {
+				throw new ConfigParseException("Cannot parse " + Spans.toString(text, start, end) + " as an long", e);
+			}
+			
+			Bounds.LongRange range = range(sourceField);
+			return range == null ? x : range.check(x);
+		}
+		
+		@Override
+		public Long parse(Field sourceField, String value) {
+			return parseLong(sourceField, value);
+		}
+		
+		@Override
+		public Long parse(Field sourceField, CharSequence text, int start, int end) {
+			return parseLong(sourceField, text, start, end);
+		}
+		
+		@Override
+		public String write(Field targetField, Long value) {
+			return value.toString();
+		}
+		
+		@Override
+		public void write(Field targetField, Long value, StringBuilder out) {
+			out.append(value.longValue());
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, value, accessor, configInst); return; }
+			accessor.setLong(configInst, parseLong(sourceField, value));
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, text, start, end, accessor, configInst); return; }
+			accessor.setLong(configInst, parseLong(sourceField, text, start, end));
+		}
+		
+		@Override
+		public String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+			if(boxed(targetField)) return Codon.super.writeFrom(targetField, accessor, configInst);
+			return Long.toString(accessor.getLong(configInst));
+		}
+		
+		@Override
+		public void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+			if(boxed(targetField)) { Codon.super.writeFrom(targetField, accessor, configInst, out); return; }
+			out.append(accessor.getLong(configInst));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Long value, BinaryOutput out) {
+			out.writeSignedVarLong(value);
+		}
+		
+		@Override
+		public Long readBinary(Field sourceField, BinaryInput in) {
+			return in.readSignedVarLong();
+		}
+		
+		@Override
+		public void readBinaryInto(Field sourceField, BinaryInput in, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.readBinaryInto(sourceField, in, accessor, configInst); return; }
+			accessor.setLong(configInst, in.readSignedVarLong());
+		}
+		
+		@Override
+		public void writeBinaryFrom(Field targetField, FieldAccessor accessor, Object configInst, BinaryOutput out) {
+			if(boxed(targetField)) { Codon.super.writeBinaryFrom(targetField, accessor, configInst, out); return; }
+			out.writeSignedVarLong(accessor.getLong(configInst));
+		}
+	}
+	
+	public static final class FloatCodon implements Codon<Float> {
+		public FloatCodon() {
+			this.range = null;
+		}
+		
+		private FloatCodon(Bounds.FloatRange range) {
+			this.range = range;
+		}
+		
+		/**
+		 * The bounds from the field this codon is bound to, or null if it's not bound to one (then they're read on every parse).
+		 */
+		private final @Nullable Bounds.FloatRange range;
+		
+		@Override
+		public FloatCodon bind(Field field) {
+			return new FloatCodon(Bounds.of(field).floatRange());
+		}
+		
+		private @Nullable Bounds.FloatRange range(@Nullable Field sourceField) {
+			if(range != null || sourceField == null) return range;
+			return bind(sourceField).range;
+		}
+		
+		public float parseFloat(Field sourceField, String value) {
+			return parseFloat(sourceField, value, 0, value.length());
+		}
+		
+		public float parseFloat(Field sourceField, CharSequence text, int start, int end) {
+			float x;
+			try {
+				x = Float.parseFloat(Spans.toString(text, start, end));
+			} catch (RuntimeException e) {
+				throw new ConfigParseException("Cannot parse " + Spans.toString(text, start, end) + " as an float", e);
+			}
+			
+			Bounds.FloatRange range = range(sourceField);
+			return range == null ? x : range.check(x);
+		}
+		
+		@Override
+		public Float parse(Field sourceField, String value) {
+			return parseFloat(sourceField, value);
+		}
+		
+		@Override
+		public Float parse(Field sourceField, CharSequence text, int start, int end) {
+			return parseFloat(sourceField, text, start, end);
+		}
+		
+		@Override
+		public String write(Field targetField, Float value) {
+			return value.toString();
+		}
+		
+		@Override
+		public void write(Field targetField, Float value, StringBuilder out) {
+			out.append(value.floatValue());
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, value, accessor, configInst); return; }
+			accessor.setFloat(configInst, parseFloat(sourceField, value));
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, text, start, end, accessor, configInst); return; }
+			accessor.setFloat(configInst, parseFloat(sourceField, text, start, end));
+		}
+		
+		@Override
+		public String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+			if(boxed(targetField)) return Codon.super.writeFrom(targetField, accessor, configInst);
+			return Float.toString(accessor.getFloat(configInst));
+		}
+		
+		@Override
+		public void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+			if(boxed(targetField)) { Codon.super.writeFrom(targetField, accessor, configInst, out); return; }
+			out.append(accessor.getFloat(configInst));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Float value, BinaryOutput out) {
+			out.writeFloat(value);
+		}
+		
+		@Override
+		public Float readBinary(Field sourceField, BinaryInput in) {
+			return in.readFloat();
+		}
+		
+		@Override
+		public void readBinaryInto(Field sourceField, BinaryInput in, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.readBinaryInto(sourceField, in, accessor, configInst); return; }
+			accessor.setFloat(configInst, in.readFloat());
+		}
+		
+		@Override
+		public void writeBinaryFrom(Field targetField, FieldAccessor accessor, Object configInst, BinaryOutput out) {
+			if(boxed(targetField)) { Codon.super.writeBinaryFrom(targetField, accessor, configInst, out); return; }
+			out.writeFloat(accessor.getFloat(configInst));
+		}
+	}
+	
+	public static final class DoubleCodon implements Codon<Double> {
+		public DoubleCodon() {
+			this.range = null;
+		}
+		
+		private DoubleCodon(Bounds.DoubleRange range) {
+			this.range = range;
+		}
+		
+		/**
+		 * The bounds from the field this codon is bound to, or null if it's not bound to one (then they're read on every parse).
+		 */
+		private final @Nullable Bounds.DoubleRange range;
+		
+		@Override
+		public DoubleCodon bind(Field field) {
+			return new DoubleCodon(Bounds.of(field).doubleRange());
+		}
+		
+		private @Nullable Bounds.DoubleRange range(@Nullable Field sourceField) {
+			if(range != null || sourceField == null) return range;
+			return bind(sourceField).range;
+		}
+		
+		public double parseDouble(Field sourceField, String value) {
+			return parseDouble(sourceField, value, 0, value.length());
+		}
+		
+		public double parseDouble(Field sourceField, CharSequence text, int start, int end) {
+			double x;
+			try {
+				x = Double.parseDouble(Spans.toString(text, start, end));
+			} catch (RuntimeException e) {
+				throw new ConfigParseException("Cannot parse " + Spans.toString(text, start, end) + " as an double", e);
+			}
+			
+			Bounds.DoubleRange range = range(sourceField);
+			return range == null ? x : range.check(x);
+		}
+		
+		@Override
+		public Double parse(Field sourceField, String value) {
+			return parseDouble(sourceField, value);
+		}
+		
+		@Override
+		public Double parse(Field sourceField, CharSequence text, int start, int end) {
+			return parseDouble(sourceField, text, start, end);
+		}
+		
+		@Override
+		public String write(Field targetField, Double value) {
+			return value.toString();
+		}
+		
+		@Override
+		public void write(Field targetField, Double value, StringBuilder out) {
+			out.append(value.doubleValue());
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, value, accessor, configInst); return; }
+			accessor.setDouble(configInst, parseDouble(sourceField, value));
+		}
+		
+		@Override
+		public void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.parseInto(sourceField, text, start, end, accessor, configInst); return; }
+			accessor.setDouble(configInst, parseDouble(sourceField, text, start, end));
+		}
+		
+		@Override
+		public String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+			if(boxed(targetField)) return Codon.super.writeFrom(targetField, accessor, configInst);
+			return Double.toString(accessor.getDouble(configInst));
+		}
+		
+		@Override
+		public void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+			if(boxed(targetField)) { Codon.super.writeFrom(targetField, accessor, configInst, out); return; }
+			out.append(accessor.getDouble(configInst));
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, Double value, BinaryOutput out) {
+			out.writeDouble(value);
+		}
+		
+		@Override
+		public Double readBinary(Field sourceField, BinaryInput in) {
+			return in.readDouble();
+		}
+		
+		@Override
+		public void readBinaryInto(Field sourceField, BinaryInput in, FieldAccessor accessor, Object configInst) {
+			if(boxed(sourceField)) { Codon.super.readBinaryInto(sourceField, in, accessor, configInst); return; }
+			accessor.setDouble(configInst, in.readDouble());
+		}
+		
+		@Override
+		public void writeBinaryFrom(Field targetField, FieldAccessor accessor, Object configInst, BinaryOutput out) {
+			if(boxed(targetField)) { Codon.super.writeBinaryFrom(targetField, accessor, configInst, out); return; }
+			out.writeDouble(accessor.getDouble(configInst));
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import it.unimi.dsi.fastutil.doubles.*;
+import it.unimi.dsi.fastutil.ints.*;
+import it.unimi.dsi.fastutil.longs.*;
+
+import java.lang.reflect.Field;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Codons for arrays of primitives (int[] etc), and for fastutil's primitive collections (IntList, IntSet etc).
+ * 
+ * Elements are comma-separated like the other collection codons, and parsed with the codons in PrimitiveCodons,
+ * so @AtLeast and @AtMost apply to each element, checked against ranges that are worked out when the codon is bound to its field.
+ * Nothing gets boxed along the way.
+ * 
+ * Unlike listOf and friends, the empty string parses as an empty array or collection. Like them, trailing commas are ignored.
+ * 
+ * The binary form is a varint length, then each element in the same form its codon in PrimitiveCodons would use.
+ */
+public final class PrimitiveCollectionCodons {
+	private PrimitiveCollectionCodons() {}
+	
+	private static final PrimitiveCodons.BooleanCodon BOOLEANS = new PrimitiveCodons.BooleanCodon();
+	private static final PrimitiveCodons.ByteCodon BYTES = new PrimitiveCodons.ByteCodon();
+	private static final PrimitiveCodons.ShortCodon SHORTS = new PrimitiveCodons.ShortCodon();
+	private static final PrimitiveCodons.IntCodon INTS = new PrimitiveCodons.IntCodon();
+	private static final PrimitiveCodons.LongCodon LONGS = new PrimitiveCodons.LongCodon();
+	private static final PrimitiveCodons.FloatCodon FLOATS = new PrimitiveCodons.FloatCodon();
+	private static final PrimitiveCodons.DoubleCodon DOUBLES = new PrimitiveCodons.DoubleCodon();
+	
+	public static final Codon<boolean[]> BOOLEAN_ARRAY = new ElementsCodon<>(BOOLEANS, (booleans, field) -> booleans,
+		(targetField, array, out) -> {
+			for(int i = 0; i < array.length; i++) {
+				if(i != 0) out.append(", ");
+				out.append(array[i]);
+			}
+		},
+		(elements, sourceField, text, start, end) -> {
+			boolean[] array = new boolean[count(text, start, end)];
+			forEachElement(text, start, end, (s, e, i) -> array[i] = elements.parseBoolean(sourceField, text, s, e));
+			return array;
+		},
+		(array, out) -> {
+			out.writeVarInt(array.length);
+			for(boolean x : array) out.writeBoolean(x);
+		},
+		in -> {
+			boolean[] array = new boolean[in.readVarInt()];
+			for(int i = 0; i < array.length; i++) array[i] = in.readBoolean();
+			return array;
+		});
+	
+	public static final Codon<byte[]> BYTE_ARRAY = new ElementsCodon<>(BYTES, PrimitiveCodons.ByteCodon::bind,
+		(targetField, array, out) -> {
+			for(int i = 0; i < array.length; i++) {
+				if(i != 0) out.append(", ");
+				out.append(array[i]);
+			}
+		},
+		(elements, sourceField, text, start, end) -> {
+			byte[] array = new byte[count(text, start, end)];
+			forEachElement(text, start, end, (s, e, i) -> array[i] = elements.parseByte(sourceField, text, s, e));
+			return array;
+		},
+		(array, out) -> {
+			out.writeVarInt(array.length);
+			for(byte x : array) out.writeByte(x);
+		},
+		in -> {
+			byte[] array = new byte[in.readVarInt()];
+			for(int i = 0; i < array.length; i++) array[i] = in.readByte();
+			return array;
+		});
+	
+	public static final Codon<short[]> SHORT_ARRAY = new ElementsCodon<>(SHORTS, PrimitiveCodons.ShortCodon::bind,
+		(targetField, array, out) -> {
+			for(int i = 0; i < array.length; i++) {
+				if(i != 0) out.append(", ");
+				out.append(array[i]);
+			}
+		},
+		(elements, sourceField, text, start, end) -> {
+			short[] array = new short[count(text, start, end)];
+			forEachElement(text, start, end, (s, e, i) -> array[i] = elements.parseShort(sourceField, text, s, e));
+			return array;
+		},
+		(array, out) -> {
+			out.writeVarInt(array.length);
+			for(short x : array) out.writeSignedVarInt(x);
+		},
+		in -> {
+			short[] array = new short[in.readVarInt()];
+			for(int i = 0; i < array.length; i++) array[i] = (short) in.readSignedVarInt();
+			return array;
+		});
+	
+	public static final Codon<int[]> INT_ARRAY = new ElementsCodon<>(INTS, PrimitiveCodons.IntCodon::bind,
+		(targetField, array, out) -> {
+			for(int i = 0; i < array.length; i++) {
+				if(i != 0) out.append(", ");
+				out.append(array[i]);
+			}
+		},
+		(elements, sourceField, text, start, end) -> {
+			int[] array = new int[count(text, start, end)];
+			forEachElement(text, start, end, (s, e, i) -> array[i] = elements.parseInt(sourceField, text, s, e));
+			return array;
+		},
+		(array, out) -> {
+			out.writeVarInt(array.length);
+			for(int x : array) out.writeSignedVarInt(x);
+		},
+		in -> {
+			int[] array = new int[in.readVarInt()];
+			for(int i = 0; i < array.length; i++) array[i] = in.readSignedVarInt();
+			return array;
+		});
+	
+	public static final Codon<long[]> LONG_ARRAY = new ElementsCodon<>(LONGS, PrimitiveCodons.LongCodon::bind,
+		(targetField, array, out) -> {
+			for(int i = 0; i < array.length; i++) {
+				if(i != 0) out.append(", ");
+				out.append(array[i]);
+			}
+		},
+		(elements, sourceField, text, start, end) -> {
+			long[] array = new long[count(text, start, end)];
+			forEachElement(text, start, end, (s, e, i) -> array[i] = elements.parseLong(sourceField, text, s, e));
+			return array;
+		},
+		(array, out) -> {
+			out.writeVarInt(array.length);
+			for(long x : array) out.writeSignedVarLong(x);
+		},
+		in -> {
+			long[] array = new long[in.readVarInt()];
+			for(int i = 0; i < array.length; i++) array[i] = in.readSignedVarLong();
+			return array;
+		});
+	
+	public static final Codon<float[]> FLOAT_ARRAY = new ElementsCodon<>(FLOATS, PrimitiveCodons.FloatCodon::bind,
+		(targetField, array, out) -> {
+			for(int i = 0; i < array.length; i++) {
+				if(i != 0) out.append(", ");
+				out.append(array[i]);
+			}
+		},
+		(elements, sourceField, text, start, end) -> {
+			float[] array = new float[count(text, start, end)];
+			forEachElement(text, start, end, (s, e, i) -> array[i] = elements.parseFloat(sourceField, text, s, e));
+			return array;
+		},
+		(array, out) -> {
+			out.writeVarInt(array.length);
+			for(float x : array) out.writeFloat(x);
+		},
+		in -> {
+			float[] array = new float[in.readVarInt()];
+			for(int i = 0; i < array.length; i++) array[i] = in.readFloat();
+			return array;
+		});
+	
+	public static final Codon<double[]> DOUBLE_ARRAY = new ElementsCodon<>(DOUBLES, PrimitiveCodons.DoubleCodon::bind,
+		(targetField, array, out) -> {
+			for(int i = 0; i < array.length; i++) {
+				if(i != 0) out.append(", ");
+				out.append(array[i]);
+			}
+		},
+		(elements, sourceField, text, start, end) -> {
+			double[] array = new double[count(text, start, end)];
+			forEachElement(text, start, end, (s, e, i) -> array[i] = elements.parseDouble(sourceField, text, s, e));
+			return array;
+		},
+		(array, out) -> {
+			out.writeVarInt(array.length);
+			for(double x : array) out.writeDouble(x);
+		},
+		in -> {
+			double[] array = new double[in.readVarInt()];
+			for(int i = 0; i < array.length; i++) array[i] = in.readDouble();
+			return array;
+		});
+	
+	public static final Codon<IntList> INT_LIST = new ElementsCodon<>(INTS, PrimitiveCodons.IntCodon::bind, PrimitiveCollectionCodons::writeInts, (elements, sourceField, text, start, end) -> {
+		IntList list = new IntArrayList(count(text, start, end));
+		forEachElement(text, start, end, (s, e, i) -> list.add(elements.parseInt(sourceField, text, s, e)));
+		return list;
+	}, PrimitiveCollectionCodons::writeIntsBinary, in -> readInts(in, IntArrayList::new));
+	
+	public static final Codon<IntSet> INT_SET = new ElementsCodon<>(INTS, PrimitiveCodons.IntCodon::bind, PrimitiveCollectionCodons::writeInts, (elements, sourceField, text, start, end) -> {
+		IntSet set = new IntOpenHashSet(count(text, start, end));
+		forEachElement(text, start, end, (s, e, i) -> set.add(elements.parseInt(sourceField, text, s, e)));
+		return set;
+	}, PrimitiveCollectionCodons::writeIntsBinary, in -> readInts(in, IntOpenHashSet::new));
+	
+	public static final Codon<LongList> LONG_LIST = new ElementsCodon<>(LONGS, PrimitiveCodons.LongCodon::bind, PrimitiveCollectionCodons::writeLongs, (elements, sourceField, text, start, end) -> {
+		LongList list = new LongArrayList(count(text, start, end));
+		forEachElement(text, start, end, (s, e, i) -> list.add(elements.parseLong(sourceField, text, s, e)));
+		return list;
+	}, PrimitiveCollectionCodons::writeLongsBinary, in -> readLongs(in, LongArrayList::new));
+	
+	public static final Codon<LongSet> LONG_SET = new ElementsCodon<>(LONGS, PrimitiveCodons.LongCodon::bind, PrimitiveCollectionCodons::writeLongs, (elements, sourceField, text, start, end) -> {
+		LongSet set = new LongOpenHashSet(count(text, start, end));
+		forEachElement(text, start, end, (s, e, i) -> set.add(elements.parseLong(sourceField, text, s, e)));
+		return set;
+	}, PrimitiveCollectionCodons::writeLongsBinary, in -> readLongs(in, LongOpenHashSet::new));
+	
+	public static final Codon<DoubleList> DOUBLE_LIST = new ElementsCodon<>(DOUBLES, PrimitiveCodons.DoubleCodon::bind, PrimitiveCollectionCodons::writeDoubles, (elements, sourceField, text, start, end) -> {
+		DoubleList list = new DoubleArrayList(count(text, start, end));
+		forEachElement(text, start, end, (s, e, i) -> list.add(elements.parseDouble(sourceField, text, s, e)));
+		return list;
+	}, PrimitiveCollectionCodons::writeDoublesBinary, in -> readDoubles(in, DoubleArrayList::new));
+	
+	public static final Codon<DoubleSet> DOUBLE_SET = new ElementsCodon<>(DOUBLES, PrimitiveCodons.DoubleCodon::bind, PrimitiveCollectionCodons::writeDoubles, (elements, sourceField, text, start, end) -> {
+		DoubleSet set = new DoubleOpenHashSet(count(text, start, end));
+		forEachElement(text, start, end, (s, e, i) -> set.add(elements.parseDouble(sourceField, text, s, e)));
+		return set;
+	}, PrimitiveCollectionCodons::writeDoublesBinary, in -> readDoubles(in, DoubleOpenHashSet::new));
+	
+	private static void writeInts(Field targetField, IntCollection ints, StringBuilder out) {
+		boolean first = true;
+		for(IntIterator it = ints.iterator(); it.hasNext(); ) {
+			if(!first) out.append(", ");
+			out.append(it.nextInt());
+			first = false;
+		}
+	}
+	
+	private static void writeLongs(Field targetField, LongCollection longs, StringBuilder out) {
+		boolean first = true;
+		for(LongIterator it = longs.iterator(); it.hasNext(); ) {
+			if(!first) out.append(", ");
+			out.append(it.nextLong());
+			first = false;
+		}
+	}
+	
+	private static void writeDoubles(Field targetField, DoubleCollection doubles, StringBuilder out) {
+		boolean first = true;
+		for(DoubleIterator it = doubles.iterator(); it.hasNext(); ) {
+			if(!first) out.append(", ");
+			out.append(it.nextDouble());
+			first = false;
+		}
+	}
+	
+	private static void writeIntsBinary(IntCollection ints, BinaryOutput out) {
+		out.writeVarInt(ints.size());
+		for(IntIterator it = ints.iterator(); it.hasNext(); ) out.writeSignedVarInt(it.nextInt());
+	}
+	
+	private static <C extends IntCollection> C readInts(BinaryInput in, IntFunction<C> factory) {
+		int size = in.readVarInt();
+		C ints = factory.apply(size);
+		for(int i = 0; i < size; i++) ints.add(in.readSignedVarInt());
+		return ints;
+	}
+	
+	private static void writeLongsBinary(LongCollection longs, BinaryOutput out) {
+		out.writeVarInt(longs.size());
+		for(LongIterator it = longs.iterator(); it.hasNext(); ) out.writeSignedVarLong(it.nextLong());
+	}
+	
+	private static <C extends LongCollection> C readLongs(BinaryInput in, IntFunction<C> factory) {
+		int size = in.readVarInt();
+		C longs = factory.apply(size);
+		for(int i = 0; i < size; i++) longs.add(in.readSignedVarLong());
+		return longs;
+	}
+	
+	private static void writeDoublesBinary(DoubleCollection doubles, BinaryOutput out) {
+		out.writeVarInt(doubles.size());
+		for(DoubleIterator it = doubles.iterator(); it.hasNext(); ) out.writeDouble(it.nextDouble());
+	}
+	
+	private static <C extends DoubleCollection> C readDoubles(BinaryInput in, IntFunction<C> factory) {
+		int size = in.readVarInt();
+		C doubles = factory.apply(size);
+		for(int i = 0; i < size; i++) doubles.add(in.readDouble());
+		return doubles;
+	}
+	
+	/**
+	 * A codon for a bunch of primitives, that parses each one with a codon from PrimitiveCodons.
+	 * Binding it binds the element codon, so the bounds are checked with the element codon's precomputed range.
+	 */
+	static final class ElementsCodon<E extends Codon<?>, T> extends SpanCodon<T> {
+		ElementsCodon(E elements, BiFunction<E, Field, E> binder, Codon.SpanWriter<T> writer, ElementsParser<E, T> parser, BiConsumer<T, BinaryOutput> binaryWriter, Function<BinaryInput, T> binaryReader) {
+			this.elements = elements;
+			this.binder = binder;
+			this.writer = writer;
+			this.parser = parser;
+			this.binaryWriter = binaryWriter;
+			this.binaryReader = binaryReader;
+		}
+		
+		final E elements;
+		final BiFunction<E, Field, E> binder;
+		final Codon.SpanWriter<T> writer;
+		final ElementsParser<E, T> parser;
+		final BiConsumer<T, BinaryOutput> binaryWriter;
+		final Function<BinaryInput, T> binaryReader;
+		
+		@Override
+		public Codon<T> bind(Field field) {
+			return new ElementsCodon<>(binder.apply(elements, field), binder, writer, parser, binaryWriter, binaryReader);
+		}
+		
+		@Override
+		public T parse(Field sourceField, CharSequence text, int start, int end) {
+			return parser.parse(elements, sourceField, text, start, end);
+		}
+		
+		@Override
+		public void write(Field targetField, T value, StringBuilder out) {
+			writer.write(targetField, value, out);
+		}
+		
+		@Override
+		public void writeBinary(Field targetField, T value, BinaryOutput out) {
+			binaryWriter.accept(value, out);
+		}
+		
+		@Override
+		public T readBinary(Field sourceField, BinaryInput in) {
+			return binaryReader.apply(in);
+		}
+	}
+	
+	@FunctionalInterface
+	interface ElementsParser<E, T> {
+		T parse(E elements, Field sourceField, CharSequence text, int start, int end);
+	}
+	
+	/**
+	 * Where the span ends once any trailing commas are dropped, like String#split drops trailing empty strings (and CollectionCodon does too).
+	 */
+	private static int dropTrailingCommas(CharSequence text, int start, int end) {
+		while(end > start && text.charAt(end - 1) == ',') end--;
+		return end;
+	}
+	
+	/**
+	 * How many comma-separated elements are in the span text[start, end), not counting trailing empty ones.
+	 */
+	static int count(CharSequence text, int start, int end) {
+		end = dropTrailingCommas(text, start, end);
+		if(start == end) return 0;
+		
+		int count = 1;
+		for(int i = start; i < end; i++) if(text.charAt(i) == ',') count++;
+		return count;
+	}
+	
+	/**
+	 * Call the sink with the (trimmed) span of each comma-separated element in text[start, end), and its index.
+	 * Trailing empty elements are skipped.
+	 */
+	static void forEachElement(CharSequence text, int start, int end, ElementSink sink) {
+		end = dropTrailingCommas(text, start, end);
+		if(start == end) return;
+		
+		int index = 0;
+		while(true) {
+			int comma = Spans.indexOf(text, ',', start, end);
+			int elementEnd = comma == -1 ? end : comma;
+			sink.accept(Spans.trimStart(text, start, elementEnd), Spans.trimEnd(text, start, elementEnd), index++);
+			
+			if(comma == -1) return;
+			start = comma + 1;
+		}
+	}
+	
+	@FunctionalInterface
+	interface ElementSink {
+		void accept(int start, int end, int index);
+	}
+}
@@ -0,0 +1,172 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import agency.highlysuspect.libs.nacl.v1.ConfigParseException;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A codon that serializes elements of this registry as their Identifier. Get one from Codon#registryEntry.
+ * 
+ * While a Pass is open on the current thread, lookups in both directions are cached, so the same string is only ever
+ * turned into an Identifier and looked up in the registry once per pass, no matter how many fields or list entries it appears in.
+ * ConfigReader opens a pass around reading and saving each config file.
+ * The cache is probed with the span of the file the entry is in, so a list of entries only makes a String for each distinct one.
+ * 
+ * The binary form is either the Identifier or the raw ID, depending on BinaryOutput#rawRegistryIds.
+ */
+public class RegistryEntryCodon<T> extends SpanCodon<T> {
+	public RegistryEntryCodon(Registry<T> registry) {
+		this.registry = registry;
+	}
+	
+	public final Registry<T> registry;
+	
+	@Override
+	public T parse(Field sourceField, CharSequence text, int start, int end) {
+		Pass pass = Pass.CURRENT.get();
+		if(pass == null) return resolve(Spans.toString(text, start, end));
+		
+		SpanCache<T> cache = pass.parsedCache(registry);
+		T value = cache.get(text, start, end);
+		if(value == null) {
+			String key = Spans.toString(text, start, end);
+			value = resolve(key);
+			cache.put(key, value);
+		}
+		return value;
+	}
+	
+	@Override
+	public String write(Field targetField, T value) {
+		Pass pass = Pass.CURRENT.get();
+		return pass == null ? idString(value) : pass.writtenCache(registry).computeIfAbsent(value, this::idString);
+	}
+	
+	@Override
+	public void write(Field targetField, T value, StringBuilder out) {
+		out.append(write(targetField, value));
+	}
+	
+	private T resolve(String value) {
+		Identifier id;
+		try {
+			id = new Identifier(value);
+		} catch (Exception e) {
+			throw new ConfigParseException("Cannot parse " + value + " as an Identifier");
+		}
+		
+		if(registry.containsId(id)) return registry.get(id);
+		else throw new ConfigParseException("Cannot find something named " + id + " in registry " + registry);
+	}
+	
+	private String idString(T value) {
+		return registry.getId(value).toString();
+	}
+	
+	@Override
+	public void writeBinary(Field targetField, T value, BinaryOutput out) {
+		out.writeRegistryEntry(registry, value);
+	}
+	
+	@Override
+	public T readBinary(Field sourceField, BinaryInput in) {
+		return in.readRegistryEntry(registry);
+	}
+	
+	/**
+	 * Caches registry lookups on this thread until it's closed. Passes nest; only the outermost close() clears the cache.
+	 * Keep passes short, since the registry could change between them.
+	 */
+	public static final class Pass implements AutoCloseable {
+		private static final ThreadLocal<Pass> CURRENT = new ThreadLocal<>();
+		
+		private final Map<Registry<?>, SpanCache<?>> parsed = new IdentityHashMap<>();
+		private final Map<Registry<?>, Map<Object, String>> written = new IdentityHashMap<>();
+		private int depth = 0;
+		
+		public static Pass begin() {
+			Pass pass = CURRENT.get();
+			if(pass == null) {
+				pass = new Pass();
+				CURRENT.set(pass);
+			}
+			pass.depth++;
+			return pass;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private <T> SpanCache<T> parsedCache(Registry<T> registry) {
+			return (SpanCache<T>) parsed.computeIfAbsent(registry, r -> new SpanCache<>());
+		}
+		
+		@SuppressWarnings("unchecked")
+		private <T> Map<T, String> writtenCache(Registry<T> registry) {
+			return (Map<T, String>) (Map<?, String>) written.computeIfAbsent(registry, r -> new IdentityHashMap<>());
+		}
+		
+		@Override
+		public void close() {
+			if(--depth == 0) CURRENT.remove();
+		}
+	}
+	
+	/**
+	 * A String-keyed hash table that can be looked up with a span of characters, without making the String first.
+	 * Spans hash the same way String#hashCode does. Only used by one thread at a time (a Pass), so it's not synchronized.
+	 */
+	private static final class SpanCache<T> {
+		private String[] keys = new String[16];
+		private Object[] values = new Object[16];
+		private int size;
+		
+		@SuppressWarnings("unchecked")
+		@Nullable T get(CharSequence text, int start, int end) {
+			int mask = keys.length - 1;
+			for(int i = hash(text, start, end) & mask; keys[i] != null; i = (i + 1) & mask) {
+				if(matches(keys[i], text, start, end)) return (T) values[i];
+			}
+			return null;
+		}
+		
+		void put(String key, T value) {
+			if(size * 2 >= keys.length) grow();
+			insert(key, value);
+			size++;
+		}
+		
+		private void insert(String key, Object value) {
+			int mask = keys.length - 1;
+			int h = key.hashCode();
+			int i = (h ^ (h >>> 16)) & mask;
+			while(keys[i] != null) i = (i + 1) & mask;
+			keys[i] = key;
+			values[i] = value;
+		}
+		
+		private void grow() {
+			String[] oldKeys = keys;
+			Object[] oldValues = values;
+			keys = new String[oldKeys.length * 2];
+			values = new Object[oldKeys.length * 2];
+			for(int i = 0; i < oldKeys.length; i++) if(oldKeys[i] != null) insert(oldKeys[i], oldValues[i]);
+		}
+		
+		private static int hash(CharSequence text, int start, int end) {
+			int h = 0;
+			for(int i = start; i < end; i++) h = 31 * h + text.charAt(i);
+			//Same spreading as HashMap, since the low bits of String#hashCode aren't great on their own
+			return h ^ (h >>> 16);
+		}
+		
+		private static boolean matches(String key, CharSequence text, int start, int end) {
+			if(key.length() != end - start) return false;
+			for(int i = 0; i < key.length(); i++) if(key.charAt(i) != text.charAt(start + i)) return false;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import net.minecraft.util.registry.Registry;
+
+import java.util.*;
+
+/**
+ * A Map from entries of one registry to values, stored as a flat array indexed by raw ID.
+ * The RegistryIdSet of maps: getByRawId is an array read, and get asks the registry for the raw ID first.
+ * 
+ * Values can't be null. Iterates in raw ID order. Like HashMap, it's not safe to change from more than one thread at once.
+ * 
+ * Config fields of this type (or of type Map, if CodonTypeLookup#setPreferRegistryIdCollections is on) get one automatically.
+ * In the config file it's written like "minecraft:stone=5, minecraft:dirt=3", so the values can't have commas in them.
+ */
+public class RegistryIdMap<K, V> extends AbstractMap<K, V> {
+	public RegistryIdMap(Registry<K> registry) {
+		this.registry = registry;
+		this.values = new Object[16];
+	}
+	
+	public final Registry<K> registry;
+	private Object[] values;
+	private int size;
+	
+	@SuppressWarnings("unchecked")
+	public V getByRawId(int rawId) {
+		return rawId >= 0 && rawId < values.length ? (V) values[rawId] : null;
+	}
+	
+	public boolean containsRawId(int rawId) {
+		return getByRawId(rawId) != null;
+	}
+	
+	@Override
+	public V get(Object key) {
+		return getByRawId(RegistryIdSet.rawIdOf(registry, key));
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+	
+	/**
+	 * @throws IllegalArgumentException if the key isn't in the registry.
+	 */
+	@Override
+	public V put(K key, V value) {
+		int rawId = registry.getRawId(key);
+		if(rawId < 0) throw new IllegalArgumentException(key + " isn't in registry " + registry);
+		return putRawId(rawId, value);
+	}
+	
+	public V putRawId(int rawId, V value) {
+		Objects.requireNonNull(value, "RegistryIdMap values can't be null");
+		if(rawId >= values.length) values = Arrays.copyOf(values, Math.max(values.length * 2, rawId + 1));
+		
+		V old = getByRawId(rawId);
+		values[rawId] = value;
+		if(old == null) size++;
+		return old;
+	}
+	
+	@Override
+	public V remove(Object key) {
+		return removeRawId(RegistryIdSet.rawIdOf(registry, key));
+	}
+	
+	public V removeRawId(int rawId) {
+		V old = getByRawId(rawId);
+		if(old != null) {
+			values[rawId] = null;
+			size--;
+		}
+		return old;
+	}
+	
+	@Override
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new AbstractSet<>() {
+			@Override
+			public int size() {
+				return size;
+			}
+			
+			@Override
+			public Iterator<Entry<K, V>> iterator() {
+				return new Iterator<>() {
+					int next = advance(0);
+					int last = -1;
+					
+					private int advance(int from) {
+						while(from < values.length && values[from] == null) from++;
+						return from;
+					}
+					
+					@Override
+					public boolean hasNext() {
+						return next < values.length;
+					}
+					
+					@Override
+					public Entry<K, V> next() {
+						if(next >= values.length) throw new NoSuchElementException();
+						last = next;
+						next = advance(next + 1);
+						return new RawIdEntry(last);
+					}
+					
+					@Override
+					public void remove() {
+						if(last < 0) throw new IllegalStateException();
+						removeRawId(last);
+						last = -1;
+					}
+				};
+			}
+		};
+	}
+	
+	/**
+	 * Reads and writes through to the map, like HashMap's entries do.
+	 */
+	private final class RawIdEntry implements Entry<K, V> {
+		RawIdEntry(int rawId) {
+			this.rawId = rawId;
+		}
+		
+		final int rawId;
+		
+		@Override
+		public K getKey() {
+			return registry.get(rawId);
+		}
+		
+		@Override
+		public V getValue() {
+			return getByRawId(rawId);
+		}
+		
+		@Override
+		public V setValue(V value) {
+			return putRawId(rawId, value);
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Entry<?, ?> e && Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+		}
+		
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import net.minecraft.util.registry.Registry;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A Set of entries from one registry, stored as a bitset over their raw IDs.
+ * 
+ * containsRawId is a single bit test. contains asks the registry for the raw ID first, which is the same lookup
+ * Registry#getRawId always does, but after that there's no hashCode, no equals, and no bucket to walk.
+ * Iterates in raw ID order. Like HashSet, it's not safe to change from more than one thread at once.
+ * 
+ * Config fields of this type (or of type Set, if CodonTypeLookup#setPreferRegistryIdCollections is on) get one automatically.
+ * The raw IDs are only looked up when the set's changed or tested, so don't keep one around across a registry being reloaded.
+ */
+public class RegistryIdSet<T> extends AbstractSet<T> {
+	public RegistryIdSet(Registry<T> registry) {
+		this.registry = registry;
+		this.bits = new BitSet();
+	}
+	
+	public final Registry<T> registry;
+	private final BitSet bits;
+	private int size;
+	
+	public boolean containsRawId(int rawId) {
+		return rawId >= 0 && bits.get(rawId);
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return containsRawId(rawIdOf(registry, o));
+	}
+	
+	/**
+	 * @throws IllegalArgumentException if the thing isn't in the registry.
+	 */
+	@Override
+	public boolean add(T t) {
+		int rawId = registry.getRawId(t);
+		if(rawId < 0) throw new IllegalArgumentException(t + " isn't in registry " + registry);
+		return addRawId(rawId);
+	}
+	
+	public boolean addRawId(int rawId) {
+		if(bits.get(rawId)) return false;
+		bits.set(rawId);
+		size++;
+		return true;
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		return removeRawId(rawIdOf(registry, o));
+	}
+	
+	public boolean removeRawId(int rawId) {
+		if(!containsRawId(rawId)) return false;
+		bits.clear(rawId);
+		size--;
+		return true;
+	}
+	
+	/**
+	 * @return The raw ID of o in the registry, or -1 if it's not in there (or it's not even the right type).
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> int rawIdOf(Registry<T> registry, Object o) {
+		if(o == null) return -1;
+		try {
+			return registry.getRawId((T) o);
+		} catch (ClassCastException e) {
+			return -1;
+		}
+	}
+	
+	@Override
+	public void clear() {
+		bits.clear();
+		size = 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<>() {
+			int next = bits.nextSetBit(0);
+			int last = -1;
+			
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+			
+			@Override
+			public T next() {
+				if(next < 0) throw new NoSuchElementException();
+				last = next;
+				next = bits.nextSetBit(next + 1);
+				return registry.get(last);
+			}
+			
+			@Override
+			public void remove() {
+				if(last < 0) throw new IllegalStateException();
+				removeRawId(last);
+				last = -1;
+			}
+		};
+	}
+}
@@ -0,0 +1,56 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+import agency.highlysuspect.libs.nacl.v1.FieldAccessor;
+
+import java.lang.reflect.Field;
+
+/**
+ * A codon written against the span versions of parse and write, instead of the String ones.
+ * Implement parse(Field, CharSequence, int, int) and write(Field, T, StringBuilder), and the String versions come for free.
+ * 
+ * Most codons are fine implementing Codon directly. This is for ones that get used a lot, or on big values,
+ * where cutting out a String for every value (or building one just to copy it into the file) starts to show up.
+ * See Codon#ofSpans to make one out of lambdas.
+ */
+public abstract class SpanCodon<T> implements Codon<T> {
+	@Override
+	public abstract T parse(Field sourceField, CharSequence text, int start, int end);
+	
+	@Override
+	public abstract void write(Field targetField, T value, StringBuilder out);
+	
+	@Override
+	public T parse(Field sourceField, String value) {
+		return parse(sourceField, value, 0, value.length());
+	}
+	
+	@Override
+	public String write(Field targetField, T value) {
+		StringBuilder builder = new StringBuilder();
+		write(targetField, value, builder);
+		return builder.toString();
+	}
+	
+	@Override
+	public void parseInto(Field sourceField, String value, FieldAccessor accessor, Object configInst) {
+		parseInto(sourceField, value, 0, value.length(), accessor, configInst);
+	}
+	
+	@Override
+	public void parseInto(Field sourceField, CharSequence text, int start, int end, FieldAccessor accessor, Object configInst) {
+		accessor.set(configInst, parse(sourceField, text, start, end));
+	}
+	
+	@Override
+	public String writeFrom(Field targetField, FieldAccessor accessor, Object configInst) {
+		StringBuilder builder = new StringBuilder();
+		writeFrom(targetField, accessor, configInst, builder);
+		return builder.toString();
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public void writeFrom(Field targetField, FieldAccessor accessor, Object configInst, StringBuilder out) {
+		write(targetField, (T) accessor.get(configInst), out);
+	}
+}
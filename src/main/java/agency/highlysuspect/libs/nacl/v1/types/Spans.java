@@ -0,0 +1,50 @@
+package agency.highlysuspect.libs.nacl.v1.types;
+
+/**
+ * Helpers for looking at a span of characters (text[start, end)) the way you'd look at a substring, without making the substring.
+ */
+final class Spans {
+	private Spans() {}
+	
+	/**
+	 * Where the span would start after String#trim.
+	 */
+	static int trimStart(CharSequence text, int start, int end) {
+		while(start < end && text.charAt(start) <= ' ') start++;
+		return start;
+	}
+	
+	/**
+	 * Where the span would end after String#trim.
+	 */
+	static int trimEnd(CharSequence text, int start, int end) {
+		while(end > start && text.charAt(end - 1) <= ' ') end--;
+		return end;
+	}
+	
+	/**
+	 * @return The index of the first c in the span at or after from, or -1.
+	 */
+	static int indexOf(CharSequence text, char c, int from, int end) {
+		for(int i = from; i < end; i++) if(text.charAt(i) == c) return i;
+		return -1;
+	}
+	
+	static boolean equalsIgnoreCase(CharSequence text, int start, int end, String s) {
+		if(end - start != s.length()) return false;
+		for(int i = 0; i < s.length(); i++) {
+			char a = text.charAt(start + i);
+			char b = s.charAt(i);
+			if(a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * The span as a String, for when there's no way around making one. If the span is already a whole String, that's free.
+	 */
+	static String toString(CharSequence text, int start, int end) {
+		if(text instanceof String s && start == 0 && end == s.length()) return s;
+		return text.subSequence(start, end).toString();
+	}
+}
@@ -2,8 +2,10 @@ package agency.highlysuspect.libs.nacl;
 
 import agency.highlysuspect.libs.nacl.v1.ConfigExt;
 import agency.highlysuspect.libs.nacl.v1.ConfigReader;
+import agency.highlysuspect.libs.nacl.v1.ConfigSync;
 import agency.highlysuspect.libs.nacl.v1.annotation.AtLeast;
 import agency.highlysuspect.libs.nacl.v1.annotation.Comment;
+import agency.highlysuspect.libs.nacl.v1.annotation.GenerateAdapter;
 import agency.highlysuspect.libs.nacl.v1.annotation.Section;
 import agency.highlysuspect.libs.nacl.v1.types.CodonTypeLookup;
 import com.google.common.collect.ImmutableList;
@@ -16,8 +18,12 @@ import net.minecraft.item.Item;
 import net.minecraft.item.Items;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 
 public class Test implements ModInitializer {
@@ -32,8 +38,76 @@ public class Test implements ModInitializer {
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		
+		checkSync(reader);
+	}
+	
+	//ConfigSync round trips, straight through a ByteBuffer with no network involved
+	public static void checkSync(ConfigReader reader) {
+		ConfigSync sync = new ConfigSync(reader);
+		
+		SyncConfig defaults = new SyncConfig();
+		ByteBuffer buf = sync.encode(SyncConfig.class, defaults);
+		//Just the schema hash (a varint, so at most 5 bytes) and a field count of 0
+		check(buf.remaining() <= 6, "a default-only config should only send the header, but sent " + buf.remaining() + " bytes");
+		SyncConfig decoded = sync.decode(SyncConfig.class, buf);
+		check(decoded.equals(defaults), "default-only round trip gave " + decoded);
+		
+		SyncConfig changed = new SyncConfig();
+		changed.count = 1234;
+		changed.block = Blocks.DIRT;
+		changed.favorite = Optional.of("hello");
+		changed.numbers.add(4);
+		decoded = sync.decode(SyncConfig.class, sync.encode(SyncConfig.class, changed));
+		check(decoded.equals(changed), "round trip of " + changed + " gave " + decoded);
+		
+		//Changing it in place and encoding again has to notice
+		changed.count = 5678;
+		decoded = sync.decode(SyncConfig.class, sync.encode(SyncConfig.class, changed));
+		check(decoded.count == 5678, "re-encoding a changed config gave a stale count of " + decoded.count);
+		
+		//Decoding against a base doesn't share anything with it
+		SyncConfig base = sync.decode(SyncConfig.class, sync.encode(SyncConfig.class, changed));
+		SyncConfig next = new SyncConfig();
+		next.count = 5678;
+		next.block = Blocks.DIRT;
+		next.numbers.add(4);
+		next.favorite = Optional.empty();
+		decoded = sync.decode(SyncConfig.class, sync.encode(SyncConfig.class, next, base), base);
+		check(decoded.equals(next), "delta round trip of " + next + " gave " + decoded);
+		decoded.numbers.add(5);
+		check(!base.numbers.contains(5), "the decoded config shares its list with the base");
+		
+		System.out.println("ConfigSync round trips ok");
+	}
+	
+	private static void check(boolean ok, String message) {
+		if(!ok) throw new IllegalStateException(message);
+	}
+	
+	public static class SyncConfig {
+		int count = 10;
+		Block block = Blocks.STONE;
+		Optional<String> favorite = Optional.empty();
+		List<Integer> numbers = new ArrayList<>(List.of(1, 2, 3));
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof SyncConfig other && count == other.count && block == other.block && favorite.equals(other.favorite) && numbers.equals(other.numbers);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(count, block, favorite, numbers);
+		}
+		
+		@Override
+		public String toString() {
+			return "SyncConfig[count=" + count + ", block=" + block + ", favorite=" + favorite + ", numbers=" + numbers + "]";
+		}
 	}
 	
+	@GenerateAdapter
 	public static class MyConfig implements ConfigExt {
 		@Comment("Hello world! Field A")
 		@AtLeast(intValue = 50)
@@ -49,6 +123,9 @@ public class Test implements ModInitializer {
 		
 		Float[] floats = new Float[] {5f, 10f, 0.1f + 0.2f, 100000.002f};
 		
+		@AtLeast(intValue = 0)
+		int[] ticks = new int[] {20, 40, 60};
+		
 		@Override
 		public void upgrade(HashMap<String, String> unknownKeys) {
 			unknownKeys.forEach((k, v) -> {